@@ -0,0 +1,83 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * This class is a thread-safe SRTInfo.
+ * 
+ * The SRT objects are stored in an immutable tree whose root is held in an
+ * atomic reference. Readers never lock: every read operation and every
+ * iteration works on the tree that was current when it started, so an
+ * iteration always sees a consistent snapshot even while other threads are
+ * modifying the ConcurrentSRTInfo object. Writers build a new tree from the
+ * current one and publish it with a compare-and-set, retrying if another
+ * writer got there first, so each modification is atomic.
+ * 
+ * @author fredy
+ */
+public class ConcurrentSRTInfo extends SRTInfo {
+    private final AtomicReference<SRTTree.Node> root = new AtomicReference<>();
+    
+    /**
+     * Creates a new instance of ConcurrentSRTInfo.
+     */
+    public ConcurrentSRTInfo() {
+    }
+    
+    /**
+     * Creates a new instance of ConcurrentSRTInfo with the SRT objects in
+     * the SRTInfo object. This constructor takes constant time.
+     * 
+     * @param srtInfo the SRTInfo object
+     */
+    public ConcurrentSRTInfo(SRTInfo srtInfo) {
+        root.set(srtInfo.root());
+    }
+    
+    @Override
+    SRTTree.Node root() {
+        return root.get();
+    }
+    
+    @Override
+    void update(UnaryOperator<SRTTree.Node> function) {
+        while (true) {
+            SRTTree.Node oldRoot = root.get();
+            SRTTree.Node newRoot = function.apply(oldRoot);
+            if (newRoot == oldRoot || root.compareAndSet(oldRoot, newRoot)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object clone() {
+        return new ConcurrentSRTInfo(this);
+    }
+}
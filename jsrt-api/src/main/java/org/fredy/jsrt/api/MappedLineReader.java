@@ -0,0 +1,317 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A line reader that scans a memory-mapped region of a file byte by byte.
+ * Lines are terminated the same way as {@link java.io.BufferedReader#readLine()},
+ * i.e. by a line feed, a carriage return or a carriage return followed by a
+ * line feed. Only lines that are requested as strings are decoded.
+ * 
+ * <p>This class only works for charsets in which the line terminators, white
+ * spaces, digits and the SRT time characters are encoded as single ASCII bytes.
+ * Use {@link #isSupported(Charset)} to check it.</p>
+ * 
+ * @author fredy
+ */
+final class MappedLineReader {
+    private static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+    private static final byte[] ASCII_CHARS = "\n\r\t 0123456789+-:,>".getBytes(
+        StandardCharsets.US_ASCII);
+    
+    private final FileChannel channel;
+    private final Charset charset;
+    private final long end;
+    private int windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int windowLimit;
+    private long position;
+    private int lineStart;
+    private int lineEnd;
+    private long lineNumber;
+    private long linesRead;
+    private byte[] scratch = new byte[256];
+    
+    /**
+     * Creates a new instance of MappedLineReader.
+     * 
+     * @param channel the file channel
+     * @param charset the charset
+     * @param start the position of the first line
+     * @param end the position after the last byte to be read
+     * @param lineNumber the number of lines preceding the start position
+     */
+    MappedLineReader(FileChannel channel, Charset charset, long start, long end,
+        long lineNumber) {
+        this(channel, charset, start, end, lineNumber, DEFAULT_WINDOW_SIZE);
+    }
+    
+    MappedLineReader(FileChannel channel, Charset charset, long start, long end,
+        long lineNumber, int windowSize) {
+        this.channel = channel;
+        this.charset = charset;
+        this.position = start;
+        this.end = end;
+        this.lineNumber = lineNumber;
+        this.windowSize = windowSize;
+    }
+    
+    /**
+     * Checks if the charset can be scanned byte by byte.
+     * 
+     * @param charset the charset
+     * @return true if the charset is supported; false otherwise
+     */
+    static boolean isSupported(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8) ||
+            charset.equals(StandardCharsets.US_ASCII) ||
+            charset.equals(StandardCharsets.ISO_8859_1)) {
+            return true;
+        }
+        if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1.0f) {
+            return false;
+        }
+        String s = new String(ASCII_CHARS, StandardCharsets.US_ASCII);
+        return Arrays.equals(ASCII_CHARS, s.getBytes(charset));
+    }
+    
+    /**
+     * Advances to the next line. Like BufferedLineReader, the line number is
+     * incremented even when there are no more lines.
+     * 
+     * @return true if there is a line; false if the end has been reached
+     * @throws IOException thrown while mapping the file
+     */
+    boolean readLine() throws IOException {
+        lineNumber++;
+        if (position >= end) {
+            return false;
+        }
+        while (true) {
+            if (window == null || position < windowStart ||
+                position >= windowStart + windowLimit) {
+                map(position);
+            }
+            int from = (int) (position - windowStart);
+            int i = from;
+            byte b = 0;
+            while (i < windowLimit) {
+                b = window.get(i);
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+                i++;
+            }
+            boolean lastWindow = windowStart + windowLimit >= end;
+            if (i == windowLimit) {
+                if (lastWindow) {
+                    lineStart = from;
+                    lineEnd = i;
+                    position = end;
+                    linesRead++;
+                    return true;
+                }
+                // The line does not fit in the current window
+                growAndMap(position);
+                continue;
+            }
+            if (b == '\r' && i + 1 == windowLimit && !lastWindow) {
+                // Need to look at the next byte for a line feed
+                growAndMap(position);
+                continue;
+            }
+            lineStart = from;
+            lineEnd = i;
+            int next = i + 1;
+            if (b == '\r' && next < windowLimit && window.get(next) == '\n') {
+                next++;
+            }
+            position = windowStart + next;
+            linesRead++;
+            return true;
+        }
+    }
+    
+    private void map(long start) throws IOException {
+        windowStart = start;
+        windowLimit = (int) Math.min(end - start, windowSize);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLimit);
+    }
+    
+    private void growAndMap(long start) throws IOException {
+        if (start == windowStart) {
+            if (windowSize == Integer.MAX_VALUE) {
+                throw new IOException("Line at position " + start + " is too long");
+            }
+            windowSize = (int) Math.min((long) windowSize * 2, Integer.MAX_VALUE);
+        }
+        map(start);
+    }
+    
+    /**
+     * @return the line number of the current line
+     */
+    long getLineNumber() {
+        return lineNumber;
+    }
+    
+    /**
+     * @return the number of lines that have been read
+     */
+    long getLinesRead() {
+        return linesRead;
+    }
+    
+    /**
+     * @return the position of the byte after the current line terminator
+     */
+    long getPosition() {
+        return position;
+    }
+    
+    /**
+     * @return the position of the first byte of the current line, after the
+     *         BOM in the first line
+     */
+    long getLineStart() {
+        long start = windowStart + lineStart;
+        if (lineNumber == 1 && charset.newEncoder().canEncode('\uFEFF')) {
+            byte[] bom = "\uFEFF".getBytes(charset);
+            int i = 0;
+            while (i < bom.length && i < length() && byteAt(i) == bom[i]) {
+                i++;
+            }
+            if (i == bom.length) {
+                start += bom.length;
+            }
+        }
+        return start;
+    }
+    
+    /**
+     * @return the number of bytes in the current line
+     */
+    int length() {
+        return lineEnd - lineStart;
+    }
+    
+    /**
+     * @param index the index within the current line
+     * @return the byte at the index
+     */
+    byte byteAt(int index) {
+        return window.get(lineStart + index);
+    }
+    
+    /**
+     * Finds the ASCII string in the current line.
+     * 
+     * @param ascii the ASCII string
+     * @param fromIndex the index within the current line to start from
+     * @return the index of the ASCII string within the current line or -1 if
+     *         the current line does not contain the ASCII string
+     */
+    int indexOf(String ascii, int fromIndex) {
+        int last = lineEnd - ascii.length();
+        for (int i = lineStart + fromIndex; i <= last; i++) {
+            int j = 0;
+            while (j < ascii.length() && window.get(i + j) == ascii.charAt(j)) {
+                j++;
+            }
+            if (j == ascii.length()) {
+                return i - lineStart;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Parses the SRT time format in the current line.
+     * 
+     * @param from the start index within the current line
+     * @param to the end index within the current line (exclusive)
+     * @return the time in milliseconds or {@link SRTTimeCodec#INVALID} if the
+     *         time is invalid
+     */
+    long parseTime(int from, int to) {
+        return SRTTimeCodec.parse(window, lineStart + from, lineStart + to);
+    }
+    
+    /**
+     * Checks if the current line is empty. The BOM is ignored in the first line.
+     * 
+     * @return true if the current line is empty; false otherwise
+     */
+    boolean isEmpty() {
+        if (lineNumber == 1) {
+            return toString().isEmpty();
+        }
+        return lineStart == lineEnd;
+    }
+    
+    /**
+     * Checks if the current line only contains white spaces, i.e. if
+     * {@link String#trim()} would return an empty string.
+     * 
+     * @return true if the current line only contains white spaces; false otherwise
+     */
+    boolean isBlank() {
+        if (lineNumber == 1) {
+            return toString().trim().isEmpty();
+        }
+        for (int i = lineStart; i < lineEnd; i++) {
+            if ((window.get(i) & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Decodes the current line. The BOM is removed from the first line.
+     * 
+     * @return the current line
+     */
+    @Override
+    public String toString() {
+        int length = lineEnd - lineStart;
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        window.position(lineStart);
+        window.get(scratch, 0, length);
+        String line = new String(scratch, 0, length, charset);
+        if (lineNumber == 1) {
+            return line.replace("\uFEFF", "");
+        }
+        return line;
+    }
+}
@@ -0,0 +1,170 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This class is an immutable collection of SRT objects. Every modification
+ * returns a new PersistentSRTInfo object and leaves the original unchanged.
+ * 
+ * The new version shares all unchanged SRT objects and tree nodes with the
+ * original, so each modification only allocates a logarithmic number of
+ * nodes and keeping many versions costs memory proportional to the
+ * modifications rather than to the number of SRT objects. Converting
+ * between SRTInfo and PersistentSRTInfo takes constant time.
+ * 
+ * @author fredy
+ */
+public final class PersistentSRTInfo implements Iterable<SRT> {
+    private static final PersistentSRTInfo EMPTY = new PersistentSRTInfo((SRTTree.Node) null);
+    
+    private final SRTTree.Node root;
+    
+    private PersistentSRTInfo(SRTTree.Node root) {
+        this.root = root;
+    }
+    
+    /**
+     * Creates a new instance of PersistentSRTInfo with the SRT objects in the
+     * SRTInfo object. Later modifications of the SRTInfo object do not
+     * affect this PersistentSRTInfo object.
+     * 
+     * @param srtInfo the SRTInfo object
+     */
+    public PersistentSRTInfo(SRTInfo srtInfo) {
+        this(srtInfo.root());
+    }
+    
+    /**
+     * Gets the empty PersistentSRTInfo object.
+     * 
+     * @return the empty PersistentSRTInfo object
+     */
+    public static PersistentSRTInfo empty() {
+        return EMPTY;
+    }
+    
+    private PersistentSRTInfo newVersion(SRTTree.Node newRoot) {
+        return (newRoot == root) ? this : new PersistentSRTInfo(newRoot);
+    }
+    
+    /**
+     * Gets a new version with the SRT object added. If an SRT object with the
+     * same subtitle number exists, it is replaced in the new version.
+     * 
+     * @param srt the SRT object to be added
+     * @return the new version
+     */
+    public PersistentSRTInfo with(SRT srt) {
+        return newVersion(SRTTree.put(root, srt));
+    }
+    
+    /**
+     * Gets a new version without the SRT object with the subtitle number.
+     * 
+     * @param number the subtitle number
+     * @return the new version or this object if there is no SRT object with
+     *         the subtitle number
+     */
+    public PersistentSRTInfo without(int number) {
+        return newVersion(SRTTree.remove(root, number));
+    }
+    
+    /**
+     * Gets a new version with the SRT object inserted. The subtitle numbers of
+     * the SRT objects with the same or a higher subtitle number are
+     * incremented by one.
+     * 
+     * @param srt the SRT object to be inserted
+     * @return the new version
+     */
+    public PersistentSRTInfo inserted(SRT srt) {
+        return newVersion(SRTTree.insert(root, srt));
+    }
+    
+    /**
+     * Gets a new version without the SRT object with the subtitle number. The
+     * subtitle numbers of the SRT objects with a higher subtitle number are
+     * decremented by one.
+     * 
+     * @param number the subtitle number
+     * @return the new version or this object if there is no SRT object with
+     *         the subtitle number
+     */
+    public PersistentSRTInfo deleted(int number) {
+        return newVersion(SRTTree.delete(root, number));
+    }
+    
+    /**
+     * Gets the SRT object from a given number. If there is no SRT object with
+     * the given number, the SRT object with the next higher number is returned.
+     * 
+     * @param number the subtitle number
+     * @return the SRT object
+     * @throws NoSuchElementException if there is no SRT object with the given
+     *         or a higher number
+     */
+    public SRT get(int number) {
+        return SRTTree.ceiling(root, number);
+    }
+    
+    /**
+     * Check if the subtitle number is in the PersistentSRTInfo object.
+     * 
+     * @param number the subtitle number
+     * @return true if the subtitle number is in the PersistentSRTInfo; false
+     *         otherwise
+     */
+    public boolean contains(int number) {
+        return SRTTree.contains(root, number);
+    }
+    
+    /**
+     * Gets the number of SRT objects stored in PersistentSRTInfo object.
+     * 
+     * @return the number of SRT objects
+     */
+    public int size() {
+        return SRTTree.size(root);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<SRT> iterator() {
+        return SRTTree.iterator(root);
+    }
+    
+    /**
+     * Creates a new SRTInfo object with the SRT objects in this
+     * PersistentSRTInfo object.
+     * 
+     * @return the SRTInfo object
+     */
+    public SRTInfo toSRTInfo() {
+        return new SRTInfo(root);
+    }
+}
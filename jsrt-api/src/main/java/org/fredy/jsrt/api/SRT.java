@@ -22,50 +22,146 @@
  */
 package org.fredy.jsrt.api;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 
 /**
  * A class to store SRT information.
  * 
+ * <p>The start time and end time are stored as the number of milliseconds
+ * from 00:00:00,000. Use {@link SRTTimeFormat#format(long)} to format them.
+ * The text is an immutable {@link SRTText} list, which is shared rather than
+ * copied by the constructors and the {@code with} methods.</p>
+ * 
  * @author fredy
  */
 public class SRT implements Comparable<SRT> {
     public final int number;
-    public final Date startTime;
-    public final Date endTime;
+    public final long startTime;
+    public final long endTime;
     public final List<String> text;
     
     /**
      * Creates a new instance of SRT.
      * 
      * @param number the subtitle number
-     * @param startTime the start time
-     * @param endTime the end time
+     * @param startTime the start time in milliseconds
+     * @param endTime the end time in milliseconds
      * @param text the subtitle text
      */
-    public SRT(int number, Date startTime, Date endTime, String... text) {
+    public SRT(int number, long startTime, long endTime, String... text) {
         this.number = number;
         this.startTime = startTime;
         this.endTime = endTime;
-        this.text = new ArrayList<>(Arrays.asList(text));
+        this.text = SRTText.of(text);
     }
     
     /**
      * Creates a new instance of SRT.
      * 
      * @param number the subtitle number
-     * @param startTime the start time
-     * @param endTime the end time
+     * @param startTime the start time in milliseconds
+     * @param endTime the end time in milliseconds
      * @param text the subtitle text
      */
-    public SRT(int number, Date startTime, Date endTime, List<String> text) {
+    public SRT(int number, long startTime, long endTime, List<String> text) {
         this.number = number;
         this.startTime = startTime;
         this.endTime = endTime;
-        this.text = new ArrayList<>(text);
+        this.text = SRTText.of(text);
+    }
+    
+    /**
+     * Creates a new instance of SRT.
+     * 
+     * @param number the subtitle number
+     * @param startTime the start time
+     * @param endTime the end time
+     * @param text the subtitle text
+     */
+    public SRT(int number, Date startTime, Date endTime, String... text) {
+        this(number, startTime.getTime(), endTime.getTime(), text);
+    }
+    
+    /**
+     * Creates a new instance of SRT.
+     * 
+     * @param number the subtitle number
+     * @param startTime the start time
+     * @param endTime the end time
+     * @param text the subtitle text
+     */
+    public SRT(int number, Date startTime, Date endTime, List<String> text) {
+        this(number, startTime.getTime(), endTime.getTime(), text);
+    }
+    
+    /**
+     * Gets the start time as a Date.
+     * 
+     * @return the start time
+     */
+    public Date getStartDate() {
+        return new Date(startTime);
+    }
+    
+    /**
+     * Gets the end time as a Date.
+     * 
+     * @return the end time
+     */
+    public Date getEndDate() {
+        return new Date(endTime);
+    }
+    
+    /**
+     * Gets an SRT object with the given subtitle number and the same times
+     * and text as this SRT object. The text is shared, not copied.
+     * 
+     * @param number the subtitle number
+     * @return the SRT object or this SRT object if the number is the same
+     */
+    public SRT withNumber(int number) {
+        if (number == this.number) {
+            return this;
+        }
+        return new SRT(number, startTime, endTime, text);
+    }
+    
+    /**
+     * Gets an SRT object with the given times and the same subtitle number
+     * and text as this SRT object. The text is shared, not copied.
+     * 
+     * @param startTime the start time in milliseconds
+     * @param endTime the end time in milliseconds
+     * @return the SRT object or this SRT object if the times are the same
+     */
+    public SRT withTimes(long startTime, long endTime) {
+        if (startTime == this.startTime && endTime == this.endTime) {
+            return this;
+        }
+        return new SRT(number, startTime, endTime, text);
+    }
+    
+    /**
+     * Gets an SRT object with the given text and the same subtitle number
+     * and times as this SRT object.
+     * 
+     * @param text the subtitle text
+     * @return the SRT object
+     */
+    public SRT withText(List<String> text) {
+        return new SRT(number, startTime, endTime, text);
+    }
+    
+    /**
+     * Gets an SRT object with the given text and the same subtitle number
+     * and times as this SRT object.
+     * 
+     * @param text the subtitle text
+     * @return the SRT object
+     */
+    public SRT withText(String... text) {
+        return new SRT(number, startTime, endTime, text);
     }
     
     /**
@@ -107,9 +203,11 @@ public class SRT implements Comparable<SRT> {
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
-        builder.append("SRT [number=").append(number).append(", startTime=")
-            .append(startTime).append(", endTime=").append(endTime).append(", text=")
-            .append(text).append("]");
+        builder.append("SRT [number=").append(number).append(", startTime=");
+        SRTTimeCodec.format(startTime, builder);
+        builder.append(", endTime=");
+        SRTTimeCodec.format(endTime, builder);
+        builder.append(", text=").append(text).append("]");
         return builder.toString();
     }
 }
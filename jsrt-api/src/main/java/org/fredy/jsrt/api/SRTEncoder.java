@@ -0,0 +1,217 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * An encoder that writes SRT objects as bytes straight into a reusable
+ * buffer, which is written to a channel whenever it is full. The subtitle
+ * numbers and times are formatted arithmetically and ASCII characters are
+ * copied as single bytes, so only text with non-ASCII characters goes
+ * through the charset encoder. The bytes are the same as the ones written by
+ * an {@link java.io.OutputStreamWriter} with the same charset.
+ * 
+ * <p>This class only works for charsets in which all ASCII characters are
+ * encoded as single ASCII bytes. Use {@link #isSupported(Charset)} to check
+ * it.</p>
+ * 
+ * @author fredy
+ */
+final class SRTEncoder {
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_NUMBER_LENGTH = 11;
+    private static final byte[] TIME_DELIMITER = SRTTimeFormat.TIME_DELIMITER.getBytes(
+        StandardCharsets.US_ASCII);
+    
+    private final WritableByteChannel channel;
+    private final CharsetEncoder encoder;
+    private final byte[] lineSeparator;
+    private final ByteBuffer buffer;
+    private final int headerLength;
+    private long flushed;
+    
+    /**
+     * Creates a new instance of SRTEncoder.
+     * 
+     * @param channel the channel
+     * @param charset the charset
+     * @param lineSeparator the line separator
+     */
+    SRTEncoder(WritableByteChannel channel, Charset charset, String lineSeparator) {
+        this(channel, charset, lineSeparator, DEFAULT_BUFFER_SIZE);
+    }
+    
+    SRTEncoder(WritableByteChannel channel, Charset charset, String lineSeparator,
+        int bufferSize) {
+        this.channel = channel;
+        this.encoder = charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.lineSeparator = lineSeparator.getBytes(charset);
+        headerLength = MAX_NUMBER_LENGTH + SRTTimeCodec.LENGTH * 2 + TIME_DELIMITER.length +
+            this.lineSeparator.length * 2;
+        buffer = ByteBuffer.allocate(Math.max(bufferSize, headerLength));
+    }
+    
+    /**
+     * Checks if a charset is supported by this encoder.
+     * 
+     * @param charset the charset
+     * @return true if the charset is supported; false otherwise
+     */
+    static boolean isSupported(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8) ||
+            charset.equals(StandardCharsets.US_ASCII) ||
+            charset.equals(StandardCharsets.ISO_8859_1)) {
+            return true;
+        }
+        if (!charset.canEncode() || charset.newEncoder().maxBytesPerChar() != 1.0f) {
+            return false;
+        }
+        byte[] ascii = new byte[128];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (byte) i;
+        }
+        String s = new String(ascii, StandardCharsets.US_ASCII);
+        return Arrays.equals(ascii, s.getBytes(charset));
+    }
+    
+    /**
+     * Encodes an SRT object.
+     * 
+     * @param srt the SRT object
+     * @throws IOException thrown while writing to the channel
+     */
+    void encode(SRT srt) throws IOException {
+        ensureRemaining(headerLength);
+        putNumber(srt.number);
+        buffer.put(lineSeparator);
+        SRTTimeCodec.format(srt.startTime, buffer);
+        buffer.put(TIME_DELIMITER);
+        SRTTimeCodec.format(srt.endTime, buffer);
+        buffer.put(lineSeparator);
+        SRTText text = (SRTText) srt.text;
+        for (int i = 0; i < text.size(); i++) {
+            putText(text.block(), text.start(i), text.end(i));
+            ensureRemaining(lineSeparator.length);
+            buffer.put(lineSeparator);
+        }
+        // Add an empty line at the end
+        ensureRemaining(lineSeparator.length);
+        buffer.put(lineSeparator);
+    }
+    
+    /**
+     * Writes the encoded bytes that are still in the buffer to the channel.
+     * 
+     * @throws IOException thrown while writing to the channel
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        flushed += buffer.limit();
+        buffer.clear();
+    }
+    
+    /**
+     * Gets the number of bytes encoded so far, including the ones that are
+     * still in the buffer.
+     * 
+     * @return the number of bytes encoded
+     */
+    long position() {
+        return flushed + buffer.position();
+    }
+    
+    /**
+     * Adds bytes that have been written to the channel by the caller, e.g.
+     * with {@link java.nio.channels.FileChannel#transferTo(long, long,
+     * WritableByteChannel)}, to the number of bytes encoded. The buffer must
+     * be flushed first.
+     * 
+     * @param length the number of bytes
+     */
+    void skip(long length) {
+        flushed += length;
+    }
+    
+    private void ensureRemaining(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flush();
+        }
+    }
+    
+    private void putNumber(int number) {
+        long value = number;
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        int end = buffer.position() + digits;
+        for (int i = end - 1; i >= buffer.position(); i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+    
+    private void putText(String block, int start, int end) throws IOException {
+        for (int i = start; i < end; i++) {
+            char c = block.charAt(i);
+            if (c >= 0x80) {
+                encodeText(block, i, end);
+                return;
+            }
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put((byte) c);
+        }
+    }
+    
+    private void encodeText(String block, int start, int end) throws IOException {
+        CharBuffer in = CharBuffer.wrap(block, start, end);
+        encoder.reset();
+        while (encoder.encode(in, buffer, true).isOverflow()) {
+            flush();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            flush();
+        }
+    }
+}
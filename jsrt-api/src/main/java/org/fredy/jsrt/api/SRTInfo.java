@@ -22,8 +22,12 @@
  */
 package org.fredy.jsrt.api;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.TreeSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 import org.fredy.jsrt.editor.SRTEditor;
 
@@ -34,16 +38,27 @@ import org.fredy.jsrt.editor.SRTEditor;
  * If you need to perform high-level operations for editing the SRTInfo,
  * use {@link SRTEditor} instead.
  * 
+ * <p>The SRT objects are stored in an immutable balanced tree ordered by
+ * subtitle number. Looking up, adding and removing an SRT object take
+ * logarithmic time. Inserting and deleting an SRT object together with
+ * renumbering the SRT objects after it also take logarithmic time, because
+ * the subtitle numbers are shifted lazily and applied when the SRT objects
+ * are read. Copying an SRTInfo object takes constant time.</p>
+ * 
+ * <p>The time queries use the start and end times that each node of the tree
+ * keeps for its subtree, so they need no index that would have to be rebuilt
+ * after a modification. They take logarithmic time plus the number of SRT
+ * objects found when the SRT objects are in start time order.</p>
+ * 
  * @author fredy
  */
 public class SRTInfo implements Iterable<SRT>, Cloneable {
-    private final TreeSet<SRT> info;
+    private SRTTree.Node root;
     
     /**
      * Creates a new instance of SRTInfo.
      */
     public SRTInfo() {
-        info = new TreeSet<>();
     }
     
     /**
@@ -53,7 +68,57 @@ public class SRTInfo implements Iterable<SRT>, Cloneable {
      * @param srtInfo the SRTInfo object
      */
     public SRTInfo(SRTInfo srtInfo) {
-        info = new TreeSet<>(srtInfo.info);
+        root = srtInfo.root();
+    }
+    
+    SRTInfo(SRTTree.Node root) {
+        this.root = root;
+    }
+    
+    /**
+     * Gets the current root of the tree. All read operations read the root
+     * once, so they see a consistent snapshot.
+     */
+    SRTTree.Node root() {
+        return root;
+    }
+    
+    /**
+     * Replaces the root of the tree with the result of the function applied
+     * to the current root. The function must not have side effects, because
+     * a subclass may apply it more than once.
+     */
+    void update(UnaryOperator<SRTTree.Node> function) {
+        root = function.apply(root);
+    }
+    
+    /**
+     * Replaces all SRT objects in this SRTInfo object with the SRT objects in
+     * the given SRTInfo object. This method takes constant time.
+     * 
+     * @param srtInfo the SRTInfo object
+     */
+    public void setAll(SRTInfo srtInfo) {
+        SRTTree.Node newRoot = srtInfo.root();
+        update(oldRoot -> newRoot);
+    }
+    
+    /**
+     * Applies the operation to a copy of this SRTInfo object and replaces the
+     * content of this SRTInfo object with the copy, so the operation takes
+     * effect all at once or, if it throws an exception, not at all. If another
+     * thread modifies a {@link ConcurrentSRTInfo} object in the meantime, the
+     * operation is applied again to a new copy, so no modification is lost.
+     * The operation must therefore only modify the copy it is given.
+     * 
+     * @param operation the operation
+     */
+    public void apply(Consumer<SRTInfo> operation) {
+        update(oldRoot -> {
+            SRTInfo copy = new SRTInfo(oldRoot);
+            operation.accept(copy);
+            return copy.root();
+        });
     }
     
     /**
@@ -63,15 +128,77 @@ public class SRTInfo implements Iterable<SRT>, Cloneable {
      * @param srt the SRT object to be added
      */
     public void add(SRT srt) {
-        remove(srt);
-        info.add(srt);
+        update(node -> SRTTree.put(node, srt));
+    }
+    
+    /**
+     * Inserts SRT object into SRTInfo object. The subtitle numbers of the SRT
+     * objects with the same or a higher subtitle number are incremented by one.
+     * 
+     * @param srt the SRT object to be inserted
+     */
+    public void insert(SRT srt) {
+        update(node -> SRTTree.insert(node, srt));
+    }
+    
+    /**
+     * Replaces each SRT object with the result of applying the operator to
+     * it. The operator must return an SRT object with the same subtitle
+     * number and must not have side effects. This method takes linear time
+     * and keeps the SRT objects that the operator returns unchanged.
+     * 
+     * @param operator the operator to apply to each SRT object
+     * @throws IllegalArgumentException if the operator changes a subtitle
+     *         number
+     */
+    public void replaceAll(UnaryOperator<SRT> operator) {
+        update(node -> SRTTree.map(node, operator));
+    }
+    
+    /**
+     * Replaces each SRT object with a subtitle number between fromNumber and
+     * toNumber, both inclusive, with the result of applying the operator to
+     * it. This method takes logarithmic time plus the time proportional to
+     * the number of SRT objects in the range.
+     * 
+     * @see #replaceAll(UnaryOperator)
+     * @param fromNumber the first subtitle number
+     * @param toNumber the last subtitle number
+     * @param operator the operator to apply to each SRT object
+     * @throws IllegalArgumentException if the operator changes a subtitle
+     *         number
+     */
+    public void replaceAll(int fromNumber, int toNumber, UnaryOperator<SRT> operator) {
+        update(node -> SRTTree.map(node, fromNumber, toNumber, operator));
     }
     
     /**
      * {@inheritDoc}
      */
     public Iterator<SRT> iterator() {
-        return info.iterator();
+        final Iterator<SRT> iter = SRTTree.iterator(root());
+        return new Iterator<SRT>() {
+            private SRT last;
+            
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+            
+            @Override
+            public SRT next() {
+                return last = iter.next();
+            }
+            
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                SRTInfo.this.remove(last);
+                last = null;
+            }
+        };
     }
     
     /**
@@ -80,7 +207,7 @@ public class SRTInfo implements Iterable<SRT>, Cloneable {
      * @return the number of SRT objects stored in SRTInfo object
      */
     public int size() {
-        return info.size();
+        return SRTTree.size(root());
     }
     
     /**
@@ -89,10 +216,7 @@ public class SRTInfo implements Iterable<SRT>, Cloneable {
      * @param srt the SRT object to be removed from SRTInfo
      */
     public void remove(SRT srt) {
-        // Set.remove() will check if the object is present in the Set, so
-        // there is no need to do another check if the object is present in
-        // the set
-        info.remove(srt);
+        remove(srt.number);
     }
     
     /**
@@ -101,19 +225,45 @@ public class SRTInfo implements Iterable<SRT>, Cloneable {
      * @param number the subtitle number to be removed from SRTInfo
      */
     public void remove(int number) {
-        info.remove(get(number));
-        
+        update(node -> SRTTree.remove(node, number));
     }
     
     /**
-     * Gets the SRT object from a given number.
+     * Deletes the SRT object with subtitle number from SRTInfo. The subtitle
+     * numbers of the SRT objects with a higher subtitle number are
+     * decremented by one. Nothing is changed if there is no SRT object with
+     * the subtitle number.
+     * 
+     * @param number the subtitle number to be deleted from SRTInfo
+     */
+    public void delete(int number) {
+        update(node -> SRTTree.delete(node, number));
+    }
+    
+    /**
+     * Deletes the SRT objects with subtitle numbers between fromNumber and
+     * toNumber, both inclusive, from SRTInfo. The subtitle numbers of the SRT
+     * objects after the range are decremented by the number of deleted SRT
+     * objects. This method takes logarithmic time.
+     * 
+     * @param fromNumber the first subtitle number
+     * @param toNumber the last subtitle number
+     */
+    public void delete(int fromNumber, int toNumber) {
+        update(node -> SRTTree.delete(node, fromNumber, toNumber));
+    }
+    
+    /**
+     * Gets the SRT object from a given number. If there is no SRT object with
+     * the given number, the SRT object with the next higher number is returned.
      * 
      * @param number the subtitle number
      * @return the SRT object
+     * @throws NoSuchElementException if there is no SRT object with the given
+     *         or a higher number
      */
     public SRT get(int number) {
-        // Create a dummy SRT object since the comparison is by number only.
-        return info.tailSet(new SRT(number, null, null, new String[]{})).first();
+        return SRTTree.ceiling(root(), number);
     }
     
     /**
@@ -123,7 +273,7 @@ public class SRTInfo implements Iterable<SRT>, Cloneable {
      * @return the SRT object
      */
     public SRT get(SRT srt) {
-        return info.tailSet(srt).first();
+        return get(srt.number);
     }
     
     /**
@@ -133,7 +283,7 @@ public class SRTInfo implements Iterable<SRT>, Cloneable {
      * @return true if the subtitle number is in the SRTInfo; false otherwise
      */
     public boolean contains(int number) {
-        return info.contains(new SRT(number, null, null, new String[]{}));
+        return SRTTree.contains(root(), number);
     }
     
     /**
@@ -143,7 +293,60 @@ public class SRTInfo implements Iterable<SRT>, Cloneable {
      * @return true if the subtitle number is in the SRTInfo; false otherwise
      */
     public boolean contains(SRT srt) {
-        return info.contains(srt);
+        return contains(srt.number);
+    }
+    
+    /**
+     * Gets the SRT objects that are displayed at the given time ordered by
+     * start time. An SRT object is displayed from its start time inclusive
+     * to its end time exclusive.
+     * 
+     * @param time the time in milliseconds
+     * @return the SRT objects that are displayed at the given time
+     */
+    public List<SRT> getActive(long time) {
+        return getOverlapping(time, time);
+    }
+    
+    /**
+     * Gets the SRT objects that are displayed at any time between the given
+     * start time and end time, both inclusive, ordered by start time.
+     * 
+     * @param startTime the start time in milliseconds
+     * @param endTime the end time in milliseconds
+     * @return the SRT objects that are displayed between the given times
+     */
+    public List<SRT> getOverlapping(long startTime, long endTime) {
+        List<SRT> srts = SRTTree.overlapping(root(), startTime, endTime);
+        srts.sort(SRTTree.START_TIME_ORDER);
+        return srts;
+    }
+    
+    /**
+     * Gets the SRT objects that start between the given start time and end
+     * time, both inclusive, ordered by start time.
+     * 
+     * @param startTime the start time in milliseconds
+     * @param endTime the end time in milliseconds
+     * @return the SRT objects that start between the given times
+     */
+    public List<SRT> getStarting(long startTime, long endTime) {
+        List<SRT> srts = SRTTree.starting(root(), startTime, endTime);
+        srts.sort(SRTTree.START_TIME_ORDER);
+        return srts;
+    }
+    
+    /**
+     * Gets the first SRT object that starts after the given time. If several
+     * SRT objects start at the same time, the one with the lowest subtitle
+     * number is returned.
+     * 
+     * @param time the time in milliseconds
+     * @return the SRT object or null if no SRT object starts after the given
+     *         time
+     */
+    public SRT getNextAfter(long time) {
+        return SRTTree.nextAfter(root(), time);
     }
     
     /**
@@ -153,4 +356,77 @@ public class SRTInfo implements Iterable<SRT>, Cloneable {
     public Object clone() {
         return new SRTInfo(this);
     }
-}
\ No newline at end of file
+    
+    /**
+     * This class builds an SRTInfo object from many SRT objects at once.
+     * 
+     * If the SRT objects are added in increasing subtitle number order, which
+     * is the order of SRT files, the SRTInfo object is built in linear time.
+     * Otherwise the SRT objects are sorted first. If several SRT objects have
+     * the same subtitle number, the last one added is kept, just like
+     * {@link SRTInfo#add(SRT)}.
+     */
+    public static class Builder {
+        private SRT[] srts = new SRT[16];
+        private int size;
+        private boolean sorted = true;
+        
+        /**
+         * Adds SRT object into the SRTInfo object being built.
+         * 
+         * @param srt the SRT object to be added
+         * @return this Builder object
+         */
+        public Builder add(SRT srt) {
+            if (size == srts.length) {
+                srts = Arrays.copyOf(srts, size * 2);
+            }
+            if (size > 0 && srts[size - 1].number >= srt.number) {
+                sorted = false;
+            }
+            srts[size++] = srt;
+            return this;
+        }
+        
+        /**
+         * Adds SRT objects into the SRTInfo object being built.
+         * 
+         * @param srts the SRT objects to be added
+         * @return this Builder object
+         */
+        public Builder addAll(Iterable<SRT> srts) {
+            for (SRT srt : srts) {
+                add(srt);
+            }
+            return this;
+        }
+        
+        /**
+         * Builds the SRTInfo object with the SRT objects added so far.
+         * 
+         * @return the SRTInfo object
+         */
+        public SRTInfo build() {
+            if (!sorted) {
+                sortAndRemoveDuplicates();
+            }
+            return new SRTInfo(SRTTree.build(srts, size));
+        }
+        
+        private void sortAndRemoveDuplicates() {
+            // the sort is stable, so the last SRT object added comes last
+            // among the SRT objects with the same subtitle number
+            Arrays.sort(srts, 0, size);
+            int newSize = 0;
+            for (int i = 0; i < size; i++) {
+                if (newSize > 0 && srts[newSize - 1].number == srts[i].number) {
+                    newSize--;
+                }
+                srts[newSize++] = srts[i];
+            }
+            Arrays.fill(srts, newSize, size, null);
+            size = newSize;
+            sorted = true;
+        }
+    }
+}
@@ -0,0 +1,641 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+/**
+ * This class records the edits of an SRT file in an append-only journal next
+ * to it, e.g. movie.srt.journal, instead of writing the whole SRT file after
+ * every edit. Each edit is appended to the journal as a small record with a
+ * checksum and forced to the storage device before it is applied, so an edit
+ * costs time proportional to its own size and a crash can never leave a
+ * half-written SRT file behind.
+ * 
+ * <p>Once the journal grows past the compaction threshold, the edits are
+ * compacted into the SRT file by a background thread. The SRT objects that
+ * have not been changed are copied from the SRT file like
+ * {@link SRTWriter#writeIncremental(File, SRTInfo, SRTSourceMap)} does, and
+ * the edits made while compacting are carried over to the new journal. The
+ * journal starts with the length and the CRC-32 of the SRT file it belongs to.
+ * When an SRT file is opened, the journal left by a previous session is
+ * replayed, and a record that was only partly written by a crash is dropped.
+ * A journal that does not belong to the SRT file, e.g. because the SRT file
+ * has been modified by another program, is discarded.</p>
+ * 
+ * <p>This class is thread-safe.</p>
+ * 
+ * @author fredy
+ */
+public class SRTJournal implements Closeable {
+    /**
+     * The default journal size in bytes after which the journal is compacted.
+     */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1 << 20;
+    private static final int MAGIC = 0x53524A4C;
+    private static final int VERSION = 1;
+    private static final int HEADER_LENGTH = 24;
+    private static final int RECORD_HEADER_LENGTH = 8;
+    private static final byte PUT = 1;
+    private static final byte INSERT = 2;
+    private static final byte DELETE = 3;
+    private static final byte SHIFT = 4;
+    
+    private final File srtFile;
+    private final Path srtPath;
+    private final Path journalPath;
+    private final Path newJournalPath;
+    private final Path tempPath;
+    private final long compactionThreshold;
+    private final SRTSourceMap sourceMap;
+    private final ExecutorService executor;
+    private final SRTInfo info;
+    private FileChannel channel;
+    private long size;
+    private boolean compacting;
+    private SRTJournalException compactionException;
+    private ByteBuffer record = ByteBuffer.allocate(256);
+    
+    private SRTJournal(File srtFile, SRTInfo info, SRTSourceMap sourceMap,
+        long compactionThreshold) throws IOException {
+        this.srtFile = srtFile;
+        this.info = info;
+        this.sourceMap = sourceMap;
+        this.compactionThreshold = compactionThreshold;
+        srtPath = srtFile.toPath().toAbsolutePath();
+        String name = srtPath.getFileName().toString();
+        journalPath = srtPath.resolveSibling(name + ".journal");
+        newJournalPath = srtPath.resolveSibling(name + ".journal.new");
+        // not the temporary file of SRTWriter, which may write the SRT file
+        // while a compaction is running
+        tempPath = srtPath.resolveSibling(name + ".journal.tmp");
+        
+        byte[] header = header(srtPath);
+        // A new journal that belongs to the SRT file means that a compaction
+        // has replaced the SRT file but not the journal yet.
+        if (Files.exists(newJournalPath)) {
+            if (hasHeader(newJournalPath, header)) {
+                SRTWriter.move(newJournalPath, journalPath);
+            } else {
+                Files.delete(newJournalPath);
+            }
+        }
+        if (!Files.exists(journalPath) || !hasHeader(journalPath, header)) {
+            try (FileChannel out = FileChannel.open(newJournalPath, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                out.write(ByteBuffer.wrap(header));
+                out.force(false);
+            }
+            SRTWriter.move(newJournalPath, journalPath);
+        }
+        channel = FileChannel.open(journalPath, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            size = replay();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "SRTJournal " + name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    /**
+     * Opens an SRT file and replays its journal with the default compaction
+     * threshold. See {@link #open(File, long)}.
+     * 
+     * @param srtFile the SRT file
+     * @return the SRTJournal object
+     * @throws InvalidSRTException thrown when the SRT file is invalid
+     * @throws SRTReaderException thrown while reading the SRT file
+     * @throws SRTJournalException thrown while reading the journal
+     */
+    public static SRTJournal open(File srtFile)
+        throws InvalidSRTException, SRTReaderException, SRTJournalException {
+        return open(srtFile, DEFAULT_COMPACTION_THRESHOLD);
+    }
+    
+    /**
+     * Opens an SRT file and replays its journal. The SRT file is read with
+     * {@link SRTReader#readMapped(File, SRTSourceMap)}. If there is no journal
+     * that belongs to the SRT file, a new journal is created.
+     * 
+     * @param srtFile the SRT file
+     * @param compactionThreshold the journal size in bytes after which the
+     *        journal is compacted into the SRT file
+     * @return the SRTJournal object
+     * @throws InvalidSRTException thrown when the SRT file is invalid
+     * @throws SRTReaderException thrown while reading the SRT file
+     * @throws SRTJournalException thrown while reading the journal
+     */
+    public static SRTJournal open(File srtFile, long compactionThreshold)
+        throws InvalidSRTException, SRTReaderException, SRTJournalException {
+        SRTSourceMap sourceMap = new SRTSourceMap();
+        SRTInfo info = SRTReader.readMapped(srtFile, sourceMap);
+        try {
+            return new SRTJournal(srtFile, info, sourceMap, compactionThreshold);
+        } catch (IOException e) {
+            throw new SRTJournalException(e);
+        }
+    }
+    
+    /**
+     * Gets the SRT file.
+     * 
+     * @return the SRT file
+     */
+    public File getFile() {
+        return srtFile;
+    }
+    
+    /**
+     * Gets a copy of the SRTInfo object with all the edits applied. Changing
+     * the copy does not change the journal.
+     * 
+     * @return the SRTInfo object
+     */
+    public synchronized SRTInfo getSRTInfo() {
+        return new SRTInfo(info.root());
+    }
+    
+    /**
+     * Gets the size of the journal in bytes.
+     * 
+     * @return the size of the journal
+     */
+    public synchronized long getJournalSize() {
+        return size;
+    }
+    
+    /**
+     * Adds an SRT object, replacing the SRT object with the same subtitle
+     * number.
+     * 
+     * @see SRTInfo#add(SRT)
+     * @param srt the SRT object
+     * @throws SRTJournalException thrown while writing the journal
+     */
+    public synchronized void add(SRT srt) throws SRTJournalException {
+        append(putSRT(PUT, srt));
+        info.add(srt);
+        compactIfNeeded();
+    }
+    
+    /**
+     * Inserts an SRT object, incrementing the subtitle numbers of the SRT
+     * objects with the same or a higher subtitle number.
+     * 
+     * @see SRTInfo#insert(SRT)
+     * @param srt the SRT object
+     * @throws SRTJournalException thrown while writing the journal
+     */
+    public synchronized void insert(SRT srt) throws SRTJournalException {
+        append(putSRT(INSERT, srt));
+        info.insert(srt);
+        compactIfNeeded();
+    }
+    
+    /**
+     * Deletes the SRT object with a subtitle number, decrementing the subtitle
+     * numbers of the SRT objects after it.
+     * 
+     * @see SRTInfo#delete(int)
+     * @param number the subtitle number
+     * @throws SRTJournalException thrown while writing the journal
+     */
+    public synchronized void delete(int number) throws SRTJournalException {
+        delete(number, number);
+    }
+    
+    /**
+     * Deletes the SRT objects with subtitle numbers between fromNumber and
+     * toNumber, both inclusive, renumbering the SRT objects after them.
+     * 
+     * @see SRTInfo#delete(int, int)
+     * @param fromNumber the first subtitle number
+     * @param toNumber the last subtitle number
+     * @throws SRTJournalException thrown while writing the journal
+     */
+    public synchronized void delete(int fromNumber, int toNumber) throws SRTJournalException {
+        ByteBuffer buffer = newRecord(DELETE, 8);
+        buffer.putInt(fromNumber).putInt(toNumber);
+        append(buffer);
+        info.delete(fromNumber, toNumber);
+        compactIfNeeded();
+    }
+    
+    /**
+     * Shifts the start and end times of all SRT objects.
+     * 
+     * @param millis the time in milliseconds to add
+     * @throws SRTJournalException thrown while writing the journal
+     */
+    public synchronized void shift(long millis) throws SRTJournalException {
+        shift(Integer.MIN_VALUE, Integer.MAX_VALUE, millis);
+    }
+    
+    /**
+     * Shifts the start and end times of the SRT objects with subtitle numbers
+     * between fromNumber and toNumber, both inclusive.
+     * 
+     * @param fromNumber the first subtitle number
+     * @param toNumber the last subtitle number
+     * @param millis the time in milliseconds to add
+     * @throws SRTJournalException thrown while writing the journal
+     */
+    public synchronized void shift(int fromNumber, int toNumber, long millis)
+        throws SRTJournalException {
+        ByteBuffer buffer = newRecord(SHIFT, 16);
+        buffer.putInt(fromNumber).putInt(toNumber).putLong(millis);
+        append(buffer);
+        shift(info, fromNumber, toNumber, millis);
+        compactIfNeeded();
+    }
+    
+    private static void shift(SRTInfo info, int fromNumber, int toNumber, long millis) {
+        info.replaceAll(fromNumber, toNumber,
+            srt -> srt.withTimes(srt.startTime + millis, srt.endTime + millis));
+    }
+    
+    /**
+     * Compacts the journal into the SRT file now, waiting for a compaction
+     * that is running in the background first.
+     * 
+     * @throws SRTJournalException thrown while compacting the journal
+     */
+    public void compact() throws SRTJournalException {
+        synchronized (this) {
+            awaitCompaction();
+            checkOpen();
+            compacting = true;
+        }
+        try {
+            doCompact();
+        } finally {
+            synchronized (this) {
+                compacting = false;
+                notifyAll();
+            }
+        }
+    }
+    
+    /**
+     * Closes the journal, waiting for a compaction that is running in the
+     * background. The edits that have not been compacted stay in the journal
+     * and are replayed when the SRT file is opened again.
+     * 
+     * @throws SRTJournalException thrown while closing the journal or if the
+     *         last compaction in the background failed
+     */
+    @Override
+    public void close() throws SRTJournalException {
+        SRTJournalException exception;
+        synchronized (this) {
+            awaitCompaction();
+            exception = compactionException;
+            compactionException = null;
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    exception = new SRTJournalException(e);
+                } finally {
+                    channel = null;
+                }
+            }
+        }
+        executor.shutdown();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+    
+    private void checkOpen() {
+        if (channel == null) {
+            throw new SRTJournalException(journalPath + " is closed");
+        }
+    }
+    
+    private void awaitCompaction() {
+        boolean interrupted = false;
+        while (compacting) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void compactIfNeeded() {
+        if (!compacting && size - HEADER_LENGTH >= compactionThreshold) {
+            compacting = true;
+            executor.execute(() -> {
+                try {
+                    doCompact();
+                } catch (SRTException e) {
+                    synchronized (this) {
+                        compactionException = (e instanceof SRTJournalException) ?
+                            (SRTJournalException) e : new SRTJournalException(e);
+                    }
+                } finally {
+                    synchronized (this) {
+                        compacting = false;
+                        // the edits carried over may already need a compaction
+                        if (channel != null && compactionException == null) {
+                            compactIfNeeded();
+                        }
+                        notifyAll();
+                    }
+                }
+            });
+        }
+    }
+    
+    /**
+     * Writes a snapshot of the SRTInfo object to a temporary file without
+     * holding the lock. Then, while holding the lock, the records appended
+     * since the snapshot are copied to a new journal that belongs to the
+     * temporary file, and the temporary file and the new journal replace the
+     * SRT file and the journal in that order. See the constructor for the
+     * recovery when a crash happens in between.
+     */
+    private void doCompact() throws SRTJournalException {
+        SRTInfo snapshot;
+        long offset;
+        synchronized (this) {
+            checkOpen();
+            snapshot = new SRTInfo(info.root());
+            offset = size;
+        }
+        if (offset == HEADER_LENGTH) {
+            return;
+        }
+        try {
+            Charset charset = Charset.defaultCharset();
+            SRTSourceMap newSourceMap = null;
+            if (SRTEncoder.isSupported(charset)) {
+                newSourceMap = SRTWriter.writeIncremental(tempPath, srtFile, snapshot,
+                    sourceMap, charset);
+            } else {
+                SRTWriter.write(tempPath.toFile(), snapshot);
+                try (FileChannel out = FileChannel.open(tempPath, StandardOpenOption.WRITE)) {
+                    out.force(false);
+                }
+            }
+            byte[] header = header(tempPath);
+            synchronized (this) {
+                try (FileChannel out = FileChannel.open(newJournalPath,
+                    StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                    out.write(ByteBuffer.wrap(header));
+                    for (long position = offset; position < size; ) {
+                        position += channel.transferTo(position, size - position, out);
+                    }
+                    out.force(false);
+                }
+                SRTWriter.move(tempPath, srtPath);
+                try {
+                    SRTWriter.move(newJournalPath, journalPath);
+                    channel.close();
+                    channel = FileChannel.open(journalPath, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                    size = channel.size();
+                } catch (IOException e) {
+                    // The journal no longer belongs to the SRT file, so no more
+                    // edits can be appended to it. The new journal is picked
+                    // up when the SRT file is opened again.
+                    try {
+                        channel.close();
+                    } finally {
+                        channel = null;
+                    }
+                    throw e;
+                }
+                commit(newSourceMap, sourceMap);
+            }
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException ignored) {
+                // the IOException that matters is thrown below
+            }
+            throw new SRTJournalException(e);
+        }
+    }
+    
+    /**
+     * Replaces the source map with the source map of the new SRT file, or
+     * clears it if the new SRT file could not be checksummed, since the SRT
+     * file has been replaced anyway.
+     */
+    private static void commit(SRTSourceMap newSourceMap, SRTSourceMap sourceMap) {
+        if (newSourceMap != null) {
+            try {
+                newSourceMap.commit();
+                sourceMap.set(newSourceMap);
+                return;
+            } catch (IOException e) {
+                // the SRT objects are encoded again by the next compaction
+            }
+        }
+        sourceMap.clear();
+    }
+    
+    private ByteBuffer newRecord(byte type, int length) {
+        int capacity = RECORD_HEADER_LENGTH + 1 + length;
+        if (record.capacity() < capacity) {
+            record = ByteBuffer.allocate(Math.max(capacity, record.capacity() * 2));
+        }
+        record.clear();
+        record.position(RECORD_HEADER_LENGTH);
+        return record.put(type);
+    }
+    
+    private ByteBuffer putSRT(byte type, SRT srt) {
+        List<byte[]> lines = new ArrayList<>(srt.text.size());
+        int length = 24;
+        for (String line : srt.text) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            lines.add(bytes);
+            length += 4 + bytes.length;
+        }
+        ByteBuffer buffer = newRecord(type, length);
+        buffer.putInt(srt.number).putLong(srt.startTime).putLong(srt.endTime)
+            .putInt(lines.size());
+        for (byte[] line : lines) {
+            buffer.putInt(line.length).put(line);
+        }
+        return buffer;
+    }
+    
+    private static SRT getSRT(ByteBuffer buffer) {
+        int number = buffer.getInt();
+        long startTime = buffer.getLong();
+        long endTime = buffer.getLong();
+        String[] lines = new String[buffer.getInt()];
+        for (int i = 0; i < lines.length; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            lines[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        return new SRT(number, startTime, endTime, lines);
+    }
+    
+    /**
+     * Appends the record at the end of the journal and forces it to the
+     * storage device. The record is written at the end of the last complete
+     * record, so a partly written record is overwritten by the next one.
+     */
+    private void append(ByteBuffer buffer) throws SRTJournalException {
+        checkOpen();
+        int length = buffer.position() - RECORD_HEADER_LENGTH;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), RECORD_HEADER_LENGTH, length);
+        buffer.putInt(0, length).putInt(4, (int) crc.getValue());
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer, size + buffer.position());
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new SRTJournalException(e);
+        }
+        size += buffer.limit();
+    }
+    
+    /**
+     * Applies the records in the journal to the SRTInfo object. The journal
+     * is truncated after the last complete record.
+     * 
+     * @return the size of the journal
+     */
+    private long replay() throws IOException {
+        long end = channel.size();
+        long position = HEADER_LENGTH;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_LENGTH);
+        while (position + RECORD_HEADER_LENGTH <= end) {
+            recordHeader.clear();
+            readFully(channel, recordHeader, position);
+            int length = recordHeader.getInt(0);
+            if (length <= 0 || length > end - position - RECORD_HEADER_LENGTH) {
+                break;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            readFully(channel, buffer, position + RECORD_HEADER_LENGTH);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.array(), 0, length);
+            if ((int) crc.getValue() != recordHeader.getInt(4)) {
+                break;
+            }
+            buffer.flip();
+            apply(buffer);
+            position += RECORD_HEADER_LENGTH + length;
+        }
+        if (position < end) {
+            channel.truncate(position);
+            channel.force(false);
+        }
+        return position;
+    }
+    
+    private void apply(ByteBuffer buffer) {
+        byte type = buffer.get();
+        switch (type) {
+        case PUT:
+            info.add(getSRT(buffer));
+            break;
+        case INSERT:
+            info.insert(getSRT(buffer));
+            break;
+        case DELETE:
+            int fromNumber = buffer.getInt();
+            info.delete(fromNumber, buffer.getInt());
+            break;
+        case SHIFT:
+            int from = buffer.getInt();
+            int to = buffer.getInt();
+            shift(info, from, to, buffer.getLong());
+            break;
+        default:
+            throw new SRTJournalException("Unknown journal record type: " + type);
+        }
+    }
+    
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position)
+        throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of journal");
+            }
+        }
+    }
+    
+    /**
+     * Creates the journal header for an SRT file, which identifies the content
+     * of the SRT file by its length and CRC-32.
+     */
+    private static byte[] header(Path srtPath) throws IOException {
+        long length;
+        long checksum;
+        try (FileChannel in = FileChannel.open(srtPath, StandardOpenOption.READ)) {
+            length = in.size();
+            checksum = SRTSourceMap.checksum(in, length);
+        }
+        return ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putInt(VERSION)
+            .putLong(length).putLong(checksum).array();
+    }
+    
+    private static boolean hasHeader(Path journalPath, byte[] header) throws IOException {
+        try (FileChannel in = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+            if (in.size() < HEADER_LENGTH) {
+                return false;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH);
+            readFully(in, buffer, 0);
+            return Arrays.equals(header, buffer.array());
+        }
+    }
+}
@@ -23,14 +23,31 @@
 package org.fredy.jsrt.api;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.EOFException;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.text.ParseException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class is responsible for reading an SRT file.
@@ -38,6 +55,9 @@ import java.util.List;
  * @author fredy
  */
 public class SRTReader {
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final int RESYNC_WINDOW_SIZE = 1 << 16;
+    
     private static class BufferedLineReader {
         private final BufferedReader reader;
         private long lineNumber;
@@ -61,6 +81,167 @@ public class SRTReader {
         }
     }
 
+    /**
+     * A task that parses the SRT objects in a range of a memory-mapped file.
+     */
+    private static class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final FileChannel channel;
+        private final Charset charset;
+        private final long start;
+        private final long end;
+        private final long lineNumber;
+        private final List<SRT> srts = new ArrayList<>();
+        private SRTSourceMap sourceMap;
+        private long linesRead;
+        private RuntimeException exception;
+        
+        public ChunkTask(FileChannel channel, Charset charset, long start, long end) {
+            // Any line number other than 0 so that only the first line of the
+            // file is treated as the first line
+            this(channel, charset, start, end, start == 0 ? 0 : 1);
+        }
+        
+        public ChunkTask(FileChannel channel, Charset charset, long start, long end,
+            long lineNumber) {
+            this.channel = channel;
+            this.charset = charset;
+            this.start = start;
+            this.end = end;
+            this.lineNumber = lineNumber;
+        }
+        
+        @Override
+        protected void compute() {
+            MappedLineReader reader = new MappedLineReader(channel, charset, start, end,
+                lineNumber);
+            long[] range = (sourceMap == null) ? null : new long[2];
+            try {
+                while (true) {
+                    SRT srt = parse(reader, range);
+                    srts.add(srt);
+                    if (range != null && range[1] >= 0) {
+                        sourceMap.add(srt, range[0], range[1]);
+                    }
+                }
+            } catch (EOFException e) {
+                linesRead = reader.getLinesRead();
+            } catch (IOException e) {
+                exception = new SRTReaderException(e);
+            } catch (RuntimeException e) {
+                exception = e;
+            }
+        }
+        
+        public void addTo(SRTInfo.Builder builder) {
+            if (exception != null) {
+                throw exception;
+            }
+            builder.addAll(srts);
+        }
+    }
+    
+    /**
+     * A task that finds the first chunk start at or after a position. A chunk
+     * starts at a subtitle number that follows an empty line and is followed by
+     * a time line, so parsing from there gives the same result as parsing the
+     * whole file.
+     */
+    private static class ChunkStartTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+        private final FileChannel channel;
+        private final Charset charset;
+        private final long position;
+        private final long size;
+        
+        public ChunkStartTask(FileChannel channel, Charset charset, long position,
+            long size) {
+            this.channel = channel;
+            this.charset = charset;
+            this.position = position;
+            this.size = size;
+        }
+        
+        @Override
+        protected Long compute() {
+            // Start from the previous byte so that the first line read ends
+            // at the first line start at or after the position.
+            MappedLineReader reader = new MappedLineReader(channel, charset, position - 1,
+                size, 1, RESYNC_WINDOW_SIZE);
+            try {
+                reader.readLine();
+                boolean previousBlank = false;
+                long lineStart = reader.getPosition();
+                while (reader.readLine()) {
+                    if (previousBlank && parseNumber(reader) >= 0) {
+                        long numberLineStart = lineStart;
+                        lineStart = reader.getPosition();
+                        if (!reader.readLine()) {
+                            break;
+                        }
+                        if (reader.indexOf(SRTTimeFormat.TIME_DELIMITER, 0) >= 0) {
+                            return numberLineStart;
+                        }
+                    }
+                    previousBlank = reader.isBlank();
+                    lineStart = reader.getPosition();
+                }
+                return size;
+            } catch (IOException e) {
+                throw new SRTReaderException(e);
+            }
+        }
+    }
+    
+    /**
+     * An iterator that parses one SRT object at a time. Only the SRT object
+     * currently being parsed is kept in memory.
+     */
+    private static class SRTIterator implements Iterator<SRT>, Closeable {
+        private final BufferedReader br;
+        private final BufferedLineReader reader;
+        private SRT next;
+        private boolean eof;
+
+        public SRTIterator(BufferedReader br) {
+            this.br = br;
+            this.reader = new BufferedLineReader(br);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !eof) {
+                try {
+                    next = parse(reader);
+                } catch (EOFException e) {
+                    eof = true;
+                } catch (IOException e) {
+                    throw new SRTReaderException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public SRT next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            SRT srt = next;
+            next = null;
+            return srt;
+        }
+
+        @Override
+        public void close() {
+            try {
+                br.close();
+            } catch (IOException e) {
+                throw new SRTReaderException(e);
+            }
+        }
+    }
+
     /**
      * Reads an SRT file and transforming it into SRT object.
      * 
@@ -77,11 +258,11 @@ public class SRTReader {
             throw new SRTReaderException(srtFile.getAbsolutePath() + " is not a regular file");
         }
 
-        SRTInfo srtInfo = new SRTInfo();
+        SRTInfo.Builder builder = new SRTInfo.Builder();
         try (BufferedReader br = new BufferedReader(new FileReader(srtFile))) {
             BufferedLineReader reader = new BufferedLineReader(br);
             while (true) {
-                srtInfo.add(parse(reader));
+                builder.add(parse(reader));
             }
         } catch (EOFException e) {
             // Do nothing
@@ -89,7 +270,276 @@ public class SRTReader {
             throw new SRTReaderException(e);
         }
         
-        return srtInfo;
+        return builder.build();
+    }
+
+    /**
+     * Reads an SRT file and transforming it into SRT object. This method
+     * memory-maps the SRT file and scans the bytes directly instead of
+     * decoding every line, which is much faster than {@link #read(File)} for
+     * large files. Both methods produce the same results.
+     * 
+     * <p>The SRT file is read using the default charset. If the default charset
+     * is not compatible with ASCII, e.g. UTF-16, this method falls back to
+     * {@link #read(File)}.</p>
+     * 
+     * @param srtFile SRT file
+     * @return the SRTInfo object
+     * @throws InvalidSRTException thrown when the SRT file is invalid
+     * @throws SRTReaderException thrown while reading SRT file
+     */
+    public static SRTInfo readMapped(File srtFile) throws InvalidSRTException, SRTReaderException {
+        if (!srtFile.exists()) {
+            throw new SRTReaderException(srtFile.getAbsolutePath() + " does not exist");
+        }
+        if (!srtFile.isFile()) {
+            throw new SRTReaderException(srtFile.getAbsolutePath() + " is not a regular file");
+        }
+        Charset charset = Charset.defaultCharset();
+        if (!MappedLineReader.isSupported(charset)) {
+            return read(srtFile);
+        }
+        
+        SRTInfo.Builder builder = new SRTInfo.Builder();
+        try (FileChannel channel = FileChannel.open(srtFile.toPath(), StandardOpenOption.READ)) {
+            ChunkTask task = new ChunkTask(channel, charset, 0, channel.size());
+            task.compute();
+            task.addTo(builder);
+        } catch (IOException e) {
+            throw new SRTReaderException(e);
+        }
+        
+        return builder.build();
+    }
+    
+    /**
+     * Reads an SRT file and transforming it into SRT object like
+     * {@link #readMapped(File)}. The byte range of every SRT object in the SRT
+     * file is recorded in the source map, so that
+     * {@link SRTWriter#writeIncremental(File, SRTInfo, SRTSourceMap)} can copy
+     * the SRT objects that have not been changed. The SRT objects that are not
+     * followed by an empty line are not recorded.
+     * 
+     * <p>If the default charset is not compatible with ASCII, e.g. UTF-16, this
+     * method falls back to {@link #read(File)} and the source map is cleared.</p>
+     * 
+     * @param srtFile SRT file
+     * @param sourceMap the source map to fill
+     * @return the SRTInfo object
+     * @throws InvalidSRTException thrown when the SRT file is invalid
+     * @throws SRTReaderException thrown while reading SRT file
+     */
+    public static SRTInfo readMapped(File srtFile, SRTSourceMap sourceMap)
+        throws InvalidSRTException, SRTReaderException {
+        if (!srtFile.exists()) {
+            throw new SRTReaderException(srtFile.getAbsolutePath() + " does not exist");
+        }
+        if (!srtFile.isFile()) {
+            throw new SRTReaderException(srtFile.getAbsolutePath() + " is not a regular file");
+        }
+        Charset charset = Charset.defaultCharset();
+        sourceMap.clear();
+        if (!MappedLineReader.isSupported(charset)) {
+            return read(srtFile);
+        }
+        
+        SRTInfo.Builder builder = new SRTInfo.Builder();
+        SRTSourceMap newSourceMap = new SRTSourceMap();
+        newSourceMap.reset(srtFile, charset);
+        try (FileChannel channel = FileChannel.open(srtFile.toPath(), StandardOpenOption.READ)) {
+            ChunkTask task = new ChunkTask(channel, charset, 0, channel.size());
+            task.sourceMap = newSourceMap;
+            task.compute();
+            task.addTo(builder);
+            newSourceMap.commit();
+        } catch (IOException e) {
+            throw new SRTReaderException(e);
+        }
+        sourceMap.set(newSourceMap);
+        
+        return builder.build();
+    }
+    
+    /**
+     * Reads an SRT file and transforming it into SRT object using the common
+     * fork/join pool. See {@link #readParallel(File, ForkJoinPool)}.
+     * 
+     * @param srtFile SRT file
+     * @return the SRTInfo object
+     * @throws InvalidSRTException thrown when the SRT file is invalid
+     * @throws SRTReaderException thrown while reading SRT file
+     */
+    public static SRTInfo readParallel(File srtFile) throws InvalidSRTException, SRTReaderException {
+        return readParallel(srtFile, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Reads an SRT file and transforming it into SRT object. The SRT file is
+     * memory-mapped like {@link #readMapped(File)} and split into chunks of bytes.
+     * Each chunk starts at a subtitle number that follows an empty line and is
+     * followed by a time line. The chunks are parsed in parallel and then merged
+     * in order. This method produces the same results as {@link #read(File)},
+     * including the line numbers in the InvalidSRTException messages.
+     * 
+     * <p>Small files are read by the calling thread.</p>
+     * 
+     * @param srtFile SRT file
+     * @param pool the fork/join pool that parses the chunks
+     * @return the SRTInfo object
+     * @throws InvalidSRTException thrown when the SRT file is invalid
+     * @throws SRTReaderException thrown while reading SRT file
+     */
+    public static SRTInfo readParallel(File srtFile, ForkJoinPool pool)
+        throws InvalidSRTException, SRTReaderException {
+        if (!srtFile.exists()) {
+            throw new SRTReaderException(srtFile.getAbsolutePath() + " does not exist");
+        }
+        if (!srtFile.isFile()) {
+            throw new SRTReaderException(srtFile.getAbsolutePath() + " is not a regular file");
+        }
+        Charset charset = Charset.defaultCharset();
+        if (!MappedLineReader.isSupported(charset)) {
+            return read(srtFile);
+        }
+        
+        SRTInfo.Builder builder = new SRTInfo.Builder();
+        try (FileChannel channel = FileChannel.open(srtFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int nChunks = (int) Math.min(pool.getParallelism() * 4L, size / MIN_CHUNK_SIZE);
+            
+            List<ChunkStartTask> startTasks = new ArrayList<>();
+            for (int i = 1; i < nChunks; i++) {
+                startTasks.add(new ChunkStartTask(channel, charset, size * i / nChunks, size));
+            }
+            invokeAll(pool, startTasks);
+            
+            List<ChunkTask> chunkTasks = new ArrayList<>();
+            long start = 0;
+            for (ChunkStartTask startTask : startTasks) {
+                long end = startTask.getRawResult();
+                if (end > start) {
+                    chunkTasks.add(new ChunkTask(channel, charset, start, end));
+                    start = end;
+                }
+            }
+            chunkTasks.add(new ChunkTask(channel, charset, start, size));
+            invokeAll(pool, chunkTasks);
+            
+            long lineNumber = 0;
+            for (ChunkTask chunkTask : chunkTasks) {
+                if (chunkTask.exception instanceof InvalidSRTException) {
+                    // The line numbers in the chunk are only known now, so parse
+                    // the chunk again to get the correct InvalidSRTException.
+                    chunkTask = new ChunkTask(channel, charset, chunkTask.start,
+                        chunkTask.end, lineNumber);
+                    chunkTask.compute();
+                }
+                chunkTask.addTo(builder);
+                lineNumber += chunkTask.linesRead;
+            }
+        } catch (IOException e) {
+            throw new SRTReaderException(e);
+        }
+        
+        return builder.build();
+    }
+    
+    private static void invokeAll(ForkJoinPool pool, List<? extends ForkJoinTask<?>> tasks) {
+        if (!tasks.isEmpty()) {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        }
+    }
+    
+    /**
+     * Creates an iterator that reads the SRT objects one at a time from the
+     * reader. Unlike {@link #read(File)}, the SRT objects are never collected
+     * into an SRTInfo object, so the memory usage does not depend on the
+     * number of subtitles. The caller is responsible for closing the reader.
+     * 
+     * @param reader the reader
+     * @return the iterator of SRT objects
+     */
+    public static Iterator<SRT> iterator(Reader reader) {
+        return new SRTIterator(toBufferedReader(reader));
+    }
+
+    /**
+     * Creates a stream that reads the SRT objects one at a time from the
+     * reader. Closing the stream closes the reader.
+     * 
+     * <p>{@link InvalidSRTException} is thrown when the stream reaches an
+     * invalid SRT object and {@link SRTReaderException} is thrown while reading
+     * the reader.</p>
+     * 
+     * @param reader the reader
+     * @return the stream of SRT objects
+     */
+    public static Stream<SRT> stream(Reader reader) {
+        SRTIterator iter = new SRTIterator(toBufferedReader(reader));
+        return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(iter,
+                Spliterator.ORDERED | Spliterator.NONNULL),
+            false).onClose(iter::close);
+    }
+
+    /**
+     * Creates a stream that reads the SRT objects one at a time from the
+     * input stream using the default charset. Closing the stream closes the
+     * input stream.
+     * 
+     * @param in the input stream
+     * @return the stream of SRT objects
+     */
+    public static Stream<SRT> stream(InputStream in) {
+        return stream(in, Charset.defaultCharset());
+    }
+
+    /**
+     * Creates a stream that reads the SRT objects one at a time from the
+     * input stream. Closing the stream closes the input stream.
+     * 
+     * @param in the input stream
+     * @param charset the charset
+     * @return the stream of SRT objects
+     */
+    public static Stream<SRT> stream(InputStream in, Charset charset) {
+        return stream(new InputStreamReader(in, charset));
+    }
+
+    /**
+     * Creates a stream that reads the SRT objects one at a time from the
+     * SRT file using the default charset. Closing the stream closes the file.
+     * 
+     * @param srtPath SRT file path
+     * @return the stream of SRT objects
+     * @throws SRTReaderException thrown while opening SRT file
+     */
+    public static Stream<SRT> stream(Path srtPath) throws SRTReaderException {
+        return stream(srtPath, Charset.defaultCharset());
+    }
+
+    /**
+     * Creates a stream that reads the SRT objects one at a time from the
+     * SRT file. Closing the stream closes the file.
+     * 
+     * @param srtPath SRT file path
+     * @param charset the charset
+     * @return the stream of SRT objects
+     * @throws SRTReaderException thrown while opening SRT file
+     */
+    public static Stream<SRT> stream(Path srtPath, Charset charset) throws SRTReaderException {
+        try {
+            return stream(Files.newBufferedReader(srtPath, charset));
+        } catch (IOException e) {
+            throw new SRTReaderException(e);
+        }
+    }
+
+    private static BufferedReader toBufferedReader(Reader reader) {
+        if (reader instanceof BufferedReader) {
+            return (BufferedReader) reader;
+        }
+        return new BufferedReader(reader);
     }
     
     private static SRT parse(BufferedLineReader reader) throws IOException, EOFException {
@@ -103,16 +553,7 @@ public class SRTReader {
             throw new EOFException();
         }
         
-        int subtitleNumber = -1;
-        try {
-            subtitleNumber = Integer.parseInt(nString);
-        } catch (NumberFormatException e) {
-            throw new InvalidSRTException(
-                String.format(
-                    "[Line: %d] %s has an invalid subtitle number",
-                    reader.getLineNumber(),
-                    nString));
-        }
+        int subtitleNumber = parseNumber(nString, reader.getLineNumber());
 
         String tString = reader.readLine();
         if (tString == null) {
@@ -121,42 +562,89 @@ public class SRTReader {
                     "[Line: %d] Start time and end time information is not present",
                     reader.getLineNumber()));
         }
-        String[] times = tString.split(SRTTimeFormat.TIME_DELIMITER);
-        if (times.length != 2) {
-            throw new InvalidSRTException(
-                String.format(
-                    "[Line: %d] %s needs to be separated with %s",
-                    reader.getLineNumber(),
-                    tString,
-                    SRTTimeFormat.TIME_DELIMITER));
+        String[] times = splitTimes(tString, reader.getLineNumber());
+        long startTime = parseStartTime(times[0], reader.getLineNumber());
+        long endTime = parseEndTime(times[1], reader.getLineNumber());
+        
+        List<String> subtitleLines = new ArrayList<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                break;
+            }
+            subtitleLines.add(line);
         }
-        Date startTime = null;
-        try {
-            startTime = SRTTimeFormat.parse(times[0]);
-        } catch (ParseException e) {
+        
+        if (subtitleLines.size() == 0) {
             throw new InvalidSRTException(String.format(
-                "[Line: %d] %s has an invalid start time format",
-                reader.getLineNumber(),
-                times[0]));
+                "[Line: %d] Missing subtitle text information",
+                reader.getLineNumber()));
         }
         
-        Date endTime = null;
-        try {
-            endTime = SRTTimeFormat.parse(times[1]);
-        } catch (ParseException e) {
-            throw new InvalidSRTException(String.format(
-                "[Line: %d] %s has an invalid end time format",
-                reader.getLineNumber(),
-                times[1]));
+        return new SRT(subtitleNumber, startTime, endTime, subtitleLines);
+    }
+    
+    /**
+     * This method does the same thing as {@link #parse(BufferedLineReader)}, but
+     * the number and time lines are parsed directly from the bytes. Any lines
+     * that cannot be parsed that way fall back to the same validation as
+     * {@link #parse(BufferedLineReader)}, so both methods produce the same results.
+     * If the range is not null, it is set to the byte range of the SRT object
+     * including the empty line that follows it. The end of the range is -1 if
+     * no empty line follows the SRT object.
+     */
+    private static SRT parse(MappedLineReader reader, long[] range)
+        throws IOException, EOFException {
+        boolean hasLine = reader.readLine();
+        // ignore all empty lines
+        while (hasLine && reader.isEmpty()) {
+            hasLine = reader.readLine();
+        }
+        
+        if (!hasLine) {
+            throw new EOFException();
+        }
+        
+        if (range != null) {
+            range[0] = reader.getLineStart();
+            range[1] = -1;
+        }
+        int subtitleNumber = parseNumber(reader);
+        if (subtitleNumber < 0) {
+            subtitleNumber = parseNumber(reader.toString(), reader.getLineNumber());
+        }
+        
+        if (!reader.readLine()) {
+            throw new InvalidSRTException(
+                String.format(
+                    "[Line: %d] Start time and end time information is not present",
+                    reader.getLineNumber()));
+        }
+        int delimiter = reader.indexOf(SRTTimeFormat.TIME_DELIMITER, 0);
+        int endIndex = delimiter + SRTTimeFormat.TIME_DELIMITER.length();
+        long startTime = SRTTimeCodec.INVALID;
+        long endTime = SRTTimeCodec.INVALID;
+        if (delimiter >= 0 && endIndex < reader.length() &&
+            reader.indexOf(SRTTimeFormat.TIME_DELIMITER, endIndex) < 0) {
+            startTime = reader.parseTime(0, delimiter);
+            endTime = reader.parseTime(endIndex, reader.length());
+        }
+        if (startTime == SRTTimeCodec.INVALID || endTime == SRTTimeCodec.INVALID) {
+            // Let the String validation report the error
+            String[] times = splitTimes(reader.toString(), reader.getLineNumber());
+            startTime = parseStartTime(times[0], reader.getLineNumber());
+            endTime = parseEndTime(times[1], reader.getLineNumber());
         }
         
         List<String> subtitleLines = new ArrayList<>();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            if (line.trim().isEmpty()) {
+        while (reader.readLine()) {
+            if (reader.isBlank()) {
+                if (range != null) {
+                    range[1] = reader.getPosition();
+                }
                 break;
             }
-            subtitleLines.add(line);
+            subtitleLines.add(reader.toString());
         }
         
         if (subtitleLines.size() == 0) {
@@ -167,4 +655,72 @@ public class SRTReader {
         
         return new SRT(subtitleNumber, startTime, endTime, subtitleLines);
     }
+    
+    private static int parseNumber(String nString, long lineNumber) {
+        try {
+            return Integer.parseInt(nString);
+        } catch (NumberFormatException e) {
+            throw new InvalidSRTException(
+                String.format(
+                    "[Line: %d] %s has an invalid subtitle number",
+                    lineNumber,
+                    nString));
+        }
+    }
+    
+    /**
+     * Parses a subtitle number that only consists of up to 9 ASCII digits.
+     * 
+     * @return the subtitle number or -1 if the line needs to be decoded first
+     */
+    private static int parseNumber(MappedLineReader reader) {
+        int length = reader.length();
+        if (length == 0 || length > 9 || reader.getLineNumber() == 1) {
+            return -1;
+        }
+        int number = 0;
+        for (int i = 0; i < length; i++) {
+            int digit = reader.byteAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            number = number * 10 + digit;
+        }
+        return number;
+    }
+    
+    private static String[] splitTimes(String tString, long lineNumber) {
+        String[] times = tString.split(SRTTimeFormat.TIME_DELIMITER);
+        if (times.length != 2) {
+            throw new InvalidSRTException(
+                String.format(
+                    "[Line: %d] %s needs to be separated with %s",
+                    lineNumber,
+                    tString,
+                    SRTTimeFormat.TIME_DELIMITER));
+        }
+        return times;
+    }
+    
+    private static long parseStartTime(String time, long lineNumber) {
+        long millis = SRTTimeCodec.parse(time);
+        if (millis == SRTTimeCodec.INVALID) {
+            throw new InvalidSRTException(String.format(
+                "[Line: %d] %s has an invalid start time format",
+                lineNumber,
+                time));
+        }
+        return millis;
+    }
+    
+    private static long parseEndTime(String time, long lineNumber) {
+        long millis = SRTTimeCodec.parse(time);
+        if (millis == SRTTimeCodec.INVALID) {
+            throw new InvalidSRTException(String.format(
+                "[Line: %d] %s has an invalid end time format",
+                lineNumber,
+                time));
+        }
+        return millis;
+    }
 }
@@ -0,0 +1,291 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * This class records where the SRT objects read from an SRT file are located
+ * in that file. It is filled by {@link SRTReader#readMapped(File, SRTSourceMap)}
+ * and used by {@link SRTWriter#writeIncremental(File, SRTInfo, SRTSourceMap)}
+ * to copy the bytes of the SRT objects that have not been changed instead of
+ * encoding them again.
+ * 
+ * <p>The SRT objects are identified by reference. Because SRT objects are
+ * immutable, changing a subtitle number, its times or its text always creates
+ * a new SRT object that is not in the source map. The source map is only used
+ * while the size, the last modified time and the CRC-32 of the SRT file are
+ * the ones recorded when it was filled, so an SRT file modified by another
+ * program is never copied from. Checking the CRC-32 reads the SRT file once,
+ * which costs much less than encoding the SRT objects again.</p>
+ * 
+ * <p>This class is not thread-safe.</p>
+ * 
+ * @author fredy
+ */
+public final class SRTSourceMap {
+    // the number of bytes that are mapped at once to compute a checksum
+    private static final long CHECKSUM_WINDOW_SIZE = 1 << 28;
+    
+    private File file;
+    private Charset charset;
+    private long fileSize;
+    private long lastModified;
+    private long checksum;
+    private SRT[] srts = new SRT[16];
+    private long[] ranges = new long[32];
+    private int size;
+    private boolean sorted = true;
+    // only used when the SRT objects are not sorted by subtitle number
+    private Map<SRT, Integer> indexes;
+    private int hint;
+    
+    /**
+     * Creates a new empty instance of SRTSourceMap.
+     */
+    public SRTSourceMap() {
+    }
+    
+    /**
+     * Gets the SRT file whose SRT objects are recorded.
+     * 
+     * @return the SRT file or null if the source map is empty
+     */
+    public File getFile() {
+        return file;
+    }
+    
+    /**
+     * Gets the number of SRT objects that are recorded.
+     * 
+     * @return the number of SRT objects
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Removes all the SRT objects.
+     */
+    public void clear() {
+        file = null;
+        charset = null;
+        srts = new SRT[16];
+        ranges = new long[32];
+        size = 0;
+        sorted = true;
+        indexes = null;
+        hint = 0;
+    }
+    
+    /**
+     * Starts recording the SRT objects of an SRT file. The size, the last
+     * modified time and the checksum of the SRT file are recorded by
+     * {@link #commit()}.
+     * 
+     * @param file the SRT file
+     * @param charset the charset of the SRT file
+     */
+    void reset(File file, Charset charset) {
+        clear();
+        this.file = file;
+        this.charset = charset;
+    }
+    
+    /**
+     * Records the SRT file size, last modified time and checksum once all the
+     * SRT objects have been added.
+     * 
+     * @throws IOException thrown while reading the SRT file
+     */
+    void commit() throws IOException {
+        fileSize = file.length();
+        lastModified = file.lastModified();
+        checksum = checksum(file);
+    }
+    
+    /**
+     * Replaces the content of this source map with the content of another one.
+     * 
+     * @param other the other source map
+     */
+    void set(SRTSourceMap other) {
+        file = other.file;
+        charset = other.charset;
+        fileSize = other.fileSize;
+        lastModified = other.lastModified;
+        checksum = other.checksum;
+        srts = other.srts;
+        ranges = other.ranges;
+        size = other.size;
+        sorted = other.sorted;
+        indexes = other.indexes;
+        hint = 0;
+    }
+    
+    /**
+     * Records the byte range of an SRT object, including the empty line that
+     * follows it.
+     * 
+     * @param srt the SRT object
+     * @param start the position of the first byte
+     * @param end the position after the last byte
+     */
+    void add(SRT srt, long start, long end) {
+        if (size == srts.length) {
+            srts = Arrays.copyOf(srts, size * 2);
+            ranges = Arrays.copyOf(ranges, size * 4);
+        }
+        if (size > 0 && srts[size - 1].number > srt.number) {
+            sorted = false;
+        }
+        srts[size] = srt;
+        ranges[size * 2] = start;
+        ranges[size * 2 + 1] = end;
+        size++;
+    }
+    
+    /**
+     * Checks if the SRT file still has the content that was recorded and was
+     * written with a charset.
+     * 
+     * @param charset the charset
+     * @return true if the recorded byte ranges can be used; false otherwise
+     */
+    boolean isValid(Charset charset) {
+        if (file == null || !charset.equals(this.charset) ||
+            file.length() != fileSize || file.lastModified() != lastModified) {
+            return false;
+        }
+        try {
+            // the last modified time may be too coarse to see a modification,
+            // and a modification may keep the size
+            return checksum(file) == checksum;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Computes the CRC-32 of a whole file.
+     */
+    private static long checksum(File file) throws IOException {
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return checksum(in, in.size());
+        }
+    }
+    
+    /**
+     * Computes the CRC-32 of the first bytes of a file. The file is mapped
+     * in windows, so no bytes are copied into the Java heap.
+     * 
+     * @param in the file
+     * @param length the number of bytes
+     * @return the CRC-32
+     * @throws IOException thrown while reading the file
+     */
+    static long checksum(FileChannel in, long length) throws IOException {
+        CRC32 crc = new CRC32();
+        for (long position = 0; position < length; position += CHECKSUM_WINDOW_SIZE) {
+            crc.update(in.map(FileChannel.MapMode.READ_ONLY, position,
+                Math.min(CHECKSUM_WINDOW_SIZE, length - position)));
+        }
+        return crc.getValue();
+    }
+    
+    /**
+     * Gets the index of the byte range of an SRT object. When the SRT objects
+     * were recorded in subtitle number order, they are found by their subtitle
+     * numbers, and looking them up in subtitle number order, e.g. while
+     * iterating an SRTInfo object, continues from the previous lookup.
+     * Otherwise they are found with an identity hash map that is only built
+     * then.
+     * 
+     * @param srt the SRT object
+     * @return the index of the byte range or -1 if the SRT object is not recorded
+     */
+    int indexOf(SRT srt) {
+        if (!sorted) {
+            if (indexes == null) {
+                indexes = new IdentityHashMap<>(size);
+                for (int i = 0; i < size; i++) {
+                    indexes.put(srts[i], i);
+                }
+            }
+            Integer index = indexes.get(srt);
+            return (index == null) ? -1 : index;
+        }
+        int i = hint;
+        if (i > 0 && (i > size || srts[i - 1].number >= srt.number)) {
+            i = lowerBound(srt.number);
+        }
+        while (i < size && srts[i].number < srt.number) {
+            i++;
+        }
+        hint = i;
+        for (; i < size && srts[i].number == srt.number; i++) {
+            if (srts[i] == srt) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private int lowerBound(int number) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (srts[mid].number < number) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    /**
+     * @param index the index of the byte range
+     * @return the position of the first byte
+     */
+    long start(int index) {
+        return ranges[index * 2];
+    }
+    
+    /**
+     * @param index the index of the byte range
+     * @return the position after the last byte
+     */
+    long end(int index) {
+        return ranges[index * 2 + 1];
+    }
+}
@@ -0,0 +1,176 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * This class is an immutable list of the text lines of an SRT object.
+ * 
+ * All lines are stored in a single string together with the end offsets
+ * of the lines, instead of one string per line in an ArrayList. A single
+ * line is stored as is without an offset table. The line strings are
+ * created when they are accessed.
+ * 
+ * @author fredy
+ */
+public final class SRTText extends AbstractList<String> implements RandomAccess {
+    private static final SRTText EMPTY = new SRTText("", null, 0);
+    
+    private final String block;
+    // ends[i] is the end offset of line i in the block or null if there is
+    // at most one line
+    private final int[] ends;
+    private final int size;
+    
+    private SRTText(String block, int[] ends, int size) {
+        this.block = block;
+        this.ends = ends;
+        this.size = size;
+    }
+    
+    /**
+     * Creates a new instance of SRTText.
+     * 
+     * @param lines the text lines
+     * @return the SRTText object
+     */
+    public static SRTText of(String... lines) {
+        return of(Arrays.asList(lines));
+    }
+    
+    /**
+     * Creates a new instance of SRTText. If the lines are already an SRTText
+     * object, the same object is returned because it is immutable.
+     * 
+     * @param lines the text lines
+     * @return the SRTText object
+     */
+    public static SRTText of(List<String> lines) {
+        if (lines instanceof SRTText) {
+            return (SRTText) lines;
+        }
+        int size = lines.size();
+        if (size == 0) {
+            return EMPTY;
+        }
+        if (size == 1) {
+            return new SRTText(requireLine(lines.get(0)), null, 1);
+        }
+        int[] ends = new int[size];
+        int length = 0;
+        int i = 0;
+        for (String line : lines) {
+            length += requireLine(line).length();
+            ends[i++] = length;
+        }
+        StringBuilder sb = new StringBuilder(length);
+        for (String line : lines) {
+            sb.append(line);
+        }
+        return new SRTText(sb.toString(), ends, size);
+    }
+    
+    private static String requireLine(String line) {
+        if (line == null) {
+            throw new NullPointerException("Subtitle text line must not be null");
+        }
+        return line;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (ends == null) {
+            return block;
+        }
+        return block.substring(start(index), ends[index]);
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+        // same as List.hashCode(), but without creating the line strings
+        int hashCode = 1;
+        for (int i = 0; i < size; i++) {
+            int lineHashCode = 0;
+            for (int j = start(i), end = end(i); j < end; j++) {
+                lineHashCode = 31 * lineHashCode + block.charAt(j);
+            }
+            hashCode = 31 * hashCode + lineHashCode;
+        }
+        return hashCode;
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof SRTText) {
+            SRTText other = (SRTText) o;
+            return size == other.size && block.equals(other.block)
+                && Arrays.equals(ends, other.ends);
+        }
+        return super.equals(o);
+    }
+    
+    /**
+     * Gets all text lines joined together without separators.
+     */
+    String block() {
+        return block;
+    }
+    
+    /**
+     * Gets the start offset of the line in {@link #block()}.
+     */
+    int start(int index) {
+        return (index == 0) ? 0 : ends[index - 1];
+    }
+    
+    /**
+     * Gets the end offset of the line in {@link #block()}.
+     */
+    int end(int index) {
+        return (ends == null) ? block.length() : ends[index];
+    }
+}
@@ -0,0 +1,254 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import java.nio.ByteBuffer;
+
+/**
+ * This class converts between the SRT time format (HH:mm:ss,SSS) and the
+ * time in milliseconds. It does not have any state, so it is safe to be used
+ * by any number of threads, and it does not allocate any objects except for
+ * {@link #format(long)}.
+ * 
+ * <p>Parsing is as lenient as {@link java.text.SimpleDateFormat}: leading
+ * white spaces and anything after the milliseconds are ignored, each field can
+ * have any number of digits (up to 9) and a field that overflows is carried
+ * into the next field, e.g. 00:61:00,000 is the same as 01:01:00,000. The
+ * milliseconds field is a number of milliseconds, e.g. 00:00:01,5 is 1005
+ * milliseconds.</p>
+ * 
+ * <p>Formatting wraps around at 24 hours, the same way as formatting a date
+ * with {@link SRTTimeFormat#TIME_FORMAT}.</p>
+ * 
+ * @author fredy
+ */
+public final class SRTTimeCodec {
+    /**
+     * The length of a formatted time.
+     */
+    public static final int LENGTH = SRTTimeFormat.TIME_FORMAT.length();
+    /**
+     * The value returned by the parse methods when the time is invalid.
+     */
+    public static final long INVALID = -1;
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final int MAX_DIGITS = 9;
+    
+    private SRTTimeCodec() {
+    }
+    
+    /**
+     * Parses the SRT time format into milliseconds.
+     * 
+     * @param srtTime the SRT time format
+     * @return the time in milliseconds or {@link #INVALID} if the time is invalid
+     */
+    public static long parse(CharSequence srtTime) {
+        return parse(srtTime, 0, srtTime.length());
+    }
+    
+    /**
+     * Parses the SRT time format into milliseconds.
+     * 
+     * @param srtTime the characters containing the SRT time format
+     * @param start the start index
+     * @param end the end index (exclusive)
+     * @return the time in milliseconds or {@link #INVALID} if the time is invalid
+     */
+    public static long parse(CharSequence srtTime, int start, int end) {
+        int i = start;
+        while (i < end && Character.isWhitespace(srtTime.charAt(i))) {
+            i++;
+        }
+        long time = 0;
+        for (int field = 0; field < 4; field++) {
+            if (field > 0) {
+                if (i == end || srtTime.charAt(i) != (field == 3 ? ',' : ':')) {
+                    return INVALID;
+                }
+                i++;
+            }
+            int value = 0;
+            int digits = 0;
+            while (i < end && digits <= MAX_DIGITS) {
+                int digit = srtTime.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+                digits++;
+                i++;
+            }
+            if (digits == 0 || digits > MAX_DIGITS) {
+                return INVALID;
+            }
+            time = add(time, field, value);
+        }
+        return time;
+    }
+    
+    /**
+     * Parses the SRT time format in ASCII bytes into milliseconds. The
+     * position and limit of the buffer are not changed.
+     * 
+     * @param buffer the buffer containing the SRT time format
+     * @param start the absolute start index
+     * @param end the absolute end index (exclusive)
+     * @return the time in milliseconds or {@link #INVALID} if the time is invalid
+     */
+    public static long parse(ByteBuffer buffer, int start, int end) {
+        int i = start;
+        while (i < end && Character.isWhitespace(buffer.get(i))) {
+            i++;
+        }
+        long time = 0;
+        for (int field = 0; field < 4; field++) {
+            if (field > 0) {
+                if (i == end || buffer.get(i) != (field == 3 ? ',' : ':')) {
+                    return INVALID;
+                }
+                i++;
+            }
+            int value = 0;
+            int digits = 0;
+            while (i < end && digits <= MAX_DIGITS) {
+                int digit = buffer.get(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+                digits++;
+                i++;
+            }
+            if (digits == 0 || digits > MAX_DIGITS) {
+                return INVALID;
+            }
+            time = add(time, field, value);
+        }
+        return time;
+    }
+    
+    private static long add(long time, int field, int value) {
+        switch (field) {
+        case 0:
+            return time + value * 3600000L;
+        case 1:
+            return time + value * 60000L;
+        case 2:
+            return time + value * 1000L;
+        default:
+            return time + value;
+        }
+    }
+    
+    /**
+     * Formats the time in milliseconds into SRT time format.
+     * 
+     * @param millis the time in milliseconds
+     * @return the SRT time format
+     */
+    public static String format(long millis) {
+        char[] chars = new char[LENGTH];
+        format(millis, chars, 0);
+        return new String(chars);
+    }
+    
+    /**
+     * Formats the time in milliseconds into SRT time format.
+     * 
+     * @param millis the time in milliseconds
+     * @param dst the destination array that has at least {@link #LENGTH}
+     *        characters from the offset
+     * @param offset the offset in the destination array
+     * @return the offset after the formatted time
+     */
+    public static int format(long millis, char[] dst, int offset) {
+        int time = (int) Math.floorMod(millis, DAY);
+        int millisecond = time % 1000;
+        time /= 1000;
+        int second = time % 60;
+        time /= 60;
+        int minute = time % 60;
+        int hour = time / 60;
+        dst[offset] = (char) ('0' + hour / 10);
+        dst[offset + 1] = (char) ('0' + hour % 10);
+        dst[offset + 2] = ':';
+        dst[offset + 3] = (char) ('0' + minute / 10);
+        dst[offset + 4] = (char) ('0' + minute % 10);
+        dst[offset + 5] = ':';
+        dst[offset + 6] = (char) ('0' + second / 10);
+        dst[offset + 7] = (char) ('0' + second % 10);
+        dst[offset + 8] = ',';
+        dst[offset + 9] = (char) ('0' + millisecond / 100);
+        dst[offset + 10] = (char) ('0' + millisecond / 10 % 10);
+        dst[offset + 11] = (char) ('0' + millisecond % 10);
+        return offset + LENGTH;
+    }
+    
+    /**
+     * Formats the time in milliseconds into SRT time format and appends it to
+     * the string builder.
+     * 
+     * @param millis the time in milliseconds
+     * @param sb the string builder
+     */
+    public static void format(long millis, StringBuilder sb) {
+        int time = (int) Math.floorMod(millis, DAY);
+        int millisecond = time % 1000;
+        time /= 1000;
+        int second = time % 60;
+        time /= 60;
+        int minute = time % 60;
+        int hour = time / 60;
+        sb.append((char) ('0' + hour / 10)).append((char) ('0' + hour % 10)).append(':')
+            .append((char) ('0' + minute / 10)).append((char) ('0' + minute % 10)).append(':')
+            .append((char) ('0' + second / 10)).append((char) ('0' + second % 10)).append(',')
+            .append((char) ('0' + millisecond / 100))
+            .append((char) ('0' + millisecond / 10 % 10))
+            .append((char) ('0' + millisecond % 10));
+    }
+    
+    /**
+     * Formats the time in milliseconds into SRT time format in ASCII bytes and
+     * puts it at the current position of the buffer.
+     * 
+     * @param millis the time in milliseconds
+     * @param dst the destination buffer that has at least {@link #LENGTH}
+     *        bytes remaining
+     */
+    public static void format(long millis, ByteBuffer dst) {
+        int time = (int) Math.floorMod(millis, DAY);
+        int millisecond = time % 1000;
+        time /= 1000;
+        int second = time % 60;
+        time /= 60;
+        int minute = time % 60;
+        int hour = time / 60;
+        dst.put((byte) ('0' + hour / 10)).put((byte) ('0' + hour % 10)).put((byte) ':')
+            .put((byte) ('0' + minute / 10)).put((byte) ('0' + minute % 10)).put((byte) ':')
+            .put((byte) ('0' + second / 10)).put((byte) ('0' + second % 10)).put((byte) ',')
+            .put((byte) ('0' + millisecond / 100))
+            .put((byte) ('0' + millisecond / 10 % 10))
+            .put((byte) ('0' + millisecond % 10));
+    }
+}
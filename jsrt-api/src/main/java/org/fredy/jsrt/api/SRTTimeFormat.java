@@ -23,13 +23,16 @@
 package org.fredy.jsrt.api;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
 
 /**
  * This class contains utility methods for SRT time format related stuff.
  * 
+ * <p>The times are in milliseconds from 00:00:00,000. The dates used by this
+ * class are the same times in milliseconds since the epoch, independent of the
+ * default time zone. All the conversions are done
+ * by {@link SRTTimeCodec}, so the methods here are thread-safe.</p>
+ * 
  * @author fredy
  */
 public class SRTTimeFormat {
@@ -39,7 +42,6 @@ public class SRTTimeFormat {
     public static final String MINUTE_FORMAT = "mm";
     public static final String SECOND_FORMAT = "ss";
     public static final String MILLISECOND_FORMAT = "SSS";
-    private static final SimpleDateFormat sdf = new SimpleDateFormat(TIME_FORMAT);
     
     public enum Type {
         HOUR,
@@ -65,13 +67,22 @@ public class SRTTimeFormat {
     private SRTTimeFormat() {
     }
     
+    /**
+     * Formats the time in milliseconds into SRT time format.
+     * @param millis the time in milliseconds
+     * @return the SRT time format
+     */
+    public static String format(long millis) {
+        return SRTTimeCodec.format(millis);
+    }
+    
     /**
      * Formats the date into SRT time format.
      * @param date the date
      * @return the SRT time format
      */
     public static String format(Date date) {
-        return sdf.format(date);
+        return SRTTimeCodec.format(date.getTime());
     }
     
     /**
@@ -81,7 +92,21 @@ public class SRTTimeFormat {
      * @throws ParseException
      */
     public static Date parse(String srtTime) throws ParseException {
-        return sdf.parse(srtTime);
+        return new Date(parseMillis(srtTime));
+    }
+    
+    /**
+     * Parses the SRT time format into the time in milliseconds.
+     * @param srtTime the SRT time format
+     * @return the time in milliseconds
+     * @throws ParseException
+     */
+    public static long parseMillis(String srtTime) throws ParseException {
+        long millis = SRTTimeCodec.parse(srtTime);
+        if (millis == SRTTimeCodec.INVALID) {
+            throw new ParseException("Unparseable date: \"" + srtTime + "\"", 0);
+        }
+        return millis;
     }
     
     /**
@@ -91,13 +116,22 @@ public class SRTTimeFormat {
      * @return the SRTTime
      */
     public static SRTTime toSRTTime(Date date) {
-        Calendar cal = Calendar.getInstance();
-        cal.setTime(date);
+        return toSRTTime(date.getTime());
+    }
+    
+    /**
+     * Converts the time in milliseconds to SRTTime.
+     * 
+     * @param millis the time in milliseconds
+     * @return the SRTTime
+     */
+    public static SRTTime toSRTTime(long millis) {
+        long time = Math.floorMod(millis, 24 * 60 * 60 * 1000L);
         return new SRTTime(
-            cal.get(Calendar.HOUR),
-            cal.get(Calendar.MINUTE),
-            cal.get(Calendar.SECOND),
-            cal.get(Calendar.MILLISECOND));
+            (int) (time / 3600000),
+            (int) (time / 60000 % 60),
+            (int) (time / 1000 % 60),
+            (int) (time % 1000));
     }
     
     /**
@@ -108,29 +142,17 @@ public class SRTTimeFormat {
      * @throws ParseException
      */
     public static Date fromSRTTime(SRTTime srtTime) throws ParseException {
-        StringBuilder timeStr = new StringBuilder();
-        if (srtTime.hour < 10) {
-            timeStr.append("0");
-        }
-        timeStr.append(Integer.toString(srtTime.hour));
-        timeStr.append(":");
-        if (srtTime.minute < 10) {
-            timeStr.append("0");
-        }
-        timeStr.append(Integer.toString(srtTime.minute));
-        timeStr.append(":");
-        if (srtTime.second < 10) {
-            timeStr.append("0");
-        }
-        timeStr.append(Integer.toString(srtTime.second));
-        timeStr.append(",");
-        if (srtTime.second < 10) {
-            timeStr.append("00");
-        } else if (srtTime.second < 100) {
-            timeStr.append("0");
-        }
-        timeStr.append(Integer.toString(srtTime.millisecond));
-        
-        return SRTTimeFormat.parse(timeStr.toString());
+        return new Date(toMillis(srtTime));
+    }
+    
+    /**
+     * Converts SRTTime to the time in milliseconds.
+     * 
+     * @param srtTime the SRTTime
+     * @return the time in milliseconds
+     */
+    public static long toMillis(SRTTime srtTime) {
+        return ((srtTime.hour * 60L + srtTime.minute) * 60L + srtTime.second) * 1000L +
+            srtTime.millisecond;
     }
 }
@@ -0,0 +1,495 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.UnaryOperator;
+
+/**
+ * This class contains the operations of an immutable treap of SRT objects
+ * ordered by subtitle number.
+ * 
+ * The subtitle numbers are not fixed in the SRT objects. Each node carries a
+ * shift that is added to the subtitle numbers of all SRT objects in its
+ * subtree, so renumbering all SRT objects after a given number only needs
+ * a split, a new shifted node and a merge. The SRT objects are renumbered
+ * when they are read. All operations return a new root and leave the
+ * original tree intact, so the trees can be shared freely.
+ * 
+ * Each node also keeps the minimum and the maximum start time and the
+ * maximum end time of its subtree, so the time queries skip the subtrees
+ * that start or end outside the query. Since the SRT objects of an SRT
+ * file are mostly in start time order, the time queries only visit a
+ * logarithmic number of nodes besides the matching ones.
+ * 
+ * @author fredy
+ */
+final class SRTTree {
+    static final Comparator<SRT> START_TIME_ORDER = new Comparator<SRT>() {
+        @Override
+        public int compare(SRT srt1, SRT srt2) {
+            int c = Long.compare(srt1.startTime, srt2.startTime);
+            return (c != 0) ? c : Integer.compare(srt1.number, srt2.number);
+        }
+    };
+    
+    static final class Node {
+        final SRT srt;
+        final int priority;
+        final int size;
+        // added to the subtitle numbers of all SRT objects in this subtree
+        final int shift;
+        final Node left;
+        final Node right;
+        // the minimum and the maximum start time and the maximum end time in
+        // this subtree
+        final long minStartTime;
+        final long maxStartTime;
+        final long maxEndTime;
+        
+        Node(SRT srt, int priority, int shift, Node left, Node right) {
+            this.srt = srt;
+            this.priority = priority;
+            this.shift = shift;
+            this.left = left;
+            this.right = right;
+            size = 1 + size(left) + size(right);
+            long min = srt.startTime;
+            long max = srt.startTime;
+            long maxEnd = srt.endTime;
+            if (left != null) {
+                min = Math.min(min, left.minStartTime);
+                max = Math.max(max, left.maxStartTime);
+                maxEnd = Math.max(maxEnd, left.maxEndTime);
+            }
+            if (right != null) {
+                min = Math.min(min, right.minStartTime);
+                max = Math.max(max, right.maxStartTime);
+                maxEnd = Math.max(maxEnd, right.maxEndTime);
+            }
+            minStartTime = min;
+            maxStartTime = max;
+            maxEndTime = maxEnd;
+        }
+    }
+    
+    private SRTTree() {
+    }
+    
+    static int size(Node node) {
+        return (node == null) ? 0 : node.size;
+    }
+    
+    static Node leaf(SRT srt) {
+        return new Node(srt, ThreadLocalRandom.current().nextInt(), 0, null, null);
+    }
+    
+    /**
+     * Builds a tree from SRT objects sorted by strictly increasing subtitle
+     * numbers in linear time.
+     */
+    static Node build(SRT[] srts, int length) {
+        if (length == 0) {
+            return null;
+        }
+        // build the Cartesian tree of random priorities with a stack of the
+        // right spine, then create the immutable nodes bottom-up
+        int[] priorities = new int[length];
+        int[] left = new int[length];
+        int[] right = new int[length];
+        int[] stack = new int[length];
+        int top = -1;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < length; i++) {
+            priorities[i] = random.nextInt();
+            left[i] = -1;
+            right[i] = -1;
+            int last = -1;
+            while (top >= 0 && priorities[stack[top]] < priorities[i]) {
+                last = stack[top--];
+            }
+            left[i] = last;
+            if (top >= 0) {
+                right[stack[top]] = i;
+            }
+            stack[++top] = i;
+        }
+        return build(srts, priorities, left, right, stack[0]);
+    }
+    
+    private static Node build(SRT[] srts, int[] priorities, int[] left,
+        int[] right, int i) {
+        Node leftNode = (left[i] < 0) ? null : build(srts, priorities, left, right, left[i]);
+        Node rightNode = (right[i] < 0) ? null : build(srts, priorities, left, right, right[i]);
+        return new Node(srts[i], priorities[i], 0, leftNode, rightNode);
+    }
+    
+    static Node shift(Node node, int delta) {
+        if (node == null || delta == 0) {
+            return node;
+        }
+        return new Node(node.srt, node.priority, node.shift + delta,
+            node.left, node.right);
+    }
+    
+    /**
+     * Splits the tree into the nodes with subtitle numbers less than the
+     * given number and the nodes with subtitle numbers greater than or
+     * equal to the given number.
+     */
+    static Node[] split(Node node, long number) {
+        if (node == null) {
+            return new Node[2];
+        }
+        // the numbers in the subtrees are relative to this node's shift
+        long relative = number - node.shift;
+        if (node.srt.number < relative) {
+            Node[] nodes = split(node.right, relative);
+            nodes[0] = new Node(node.srt, node.priority, node.shift,
+                node.left, nodes[0]);
+            nodes[1] = shift(nodes[1], node.shift);
+            return nodes;
+        } else {
+            Node[] nodes = split(node.left, relative);
+            nodes[1] = new Node(node.srt, node.priority, node.shift,
+                nodes[1], node.right);
+            nodes[0] = shift(nodes[0], node.shift);
+            return nodes;
+        }
+    }
+    
+    /**
+     * Merges two trees where all subtitle numbers in the left tree are less
+     * than the subtitle numbers in the right tree.
+     */
+    static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            return new Node(left.srt, left.priority, left.shift, left.left,
+                merge(left.right, shift(right, -left.shift)));
+        } else {
+            return new Node(right.srt, right.priority, right.shift,
+                merge(shift(left, -right.shift), right.left), right.right);
+        }
+    }
+    
+    /**
+     * Adds the SRT object or replaces the SRT object with the same subtitle
+     * number.
+     */
+    static Node put(Node root, SRT srt) {
+        return put(root, srt, srt.number, ThreadLocalRandom.current().nextInt());
+    }
+    
+    private static Node put(Node node, SRT srt, long number, int priority) {
+        // the number is relative to the shift of the node's parent
+        if (node == null || priority > node.priority) {
+            Node[] lower = split(node, number);
+            Node[] upper = split(lower[1], number + 1);
+            return new Node(srt.withNumber((int) number), priority, 0,
+                lower[0], upper[1]);
+        }
+        long relative = number - node.shift;
+        if (relative == node.srt.number) {
+            return new Node(srt.withNumber((int) relative), node.priority,
+                node.shift, node.left, node.right);
+        } else if (relative < node.srt.number) {
+            return new Node(node.srt, node.priority, node.shift,
+                put(node.left, srt, relative, priority), node.right);
+        } else {
+            return new Node(node.srt, node.priority, node.shift,
+                node.left, put(node.right, srt, relative, priority));
+        }
+    }
+    
+    /**
+     * Removes the SRT object with the subtitle number if present.
+     */
+    static Node remove(Node root, int number) {
+        if (!contains(root, number)) {
+            return root;
+        }
+        Node[] lower = split(root, number);
+        Node[] upper = split(lower[1], number + 1L);
+        return merge(lower[0], upper[1]);
+    }
+    
+    /**
+     * Inserts the SRT object and increments the subtitle numbers of the SRT
+     * objects with the same or a higher subtitle number.
+     */
+    static Node insert(Node root, SRT srt) {
+        Node[] nodes = split(root, srt.number);
+        return merge(merge(nodes[0], leaf(srt)), shift(nodes[1], 1));
+    }
+    
+    /**
+     * Removes the SRT object with the subtitle number if present and
+     * decrements the subtitle numbers of the SRT objects with a higher
+     * subtitle number.
+     */
+    static Node delete(Node root, int number) {
+        if (!contains(root, number)) {
+            return root;
+        }
+        Node[] lower = split(root, number);
+        Node[] upper = split(lower[1], number + 1L);
+        return merge(lower[0], shift(upper[1], -1));
+    }
+    
+    /**
+     * Replaces each SRT object with the result of the operator without
+     * changing the shape of the tree. The operator must keep the subtitle
+     * numbers.
+     */
+    static Node map(Node node, UnaryOperator<SRT> operator) {
+        return map(node, 0, operator);
+    }
+    
+    private static Node map(Node node, int shift, UnaryOperator<SRT> operator) {
+        if (node == null) {
+            return null;
+        }
+        shift += node.shift;
+        Node left = map(node.left, shift, operator);
+        SRT srt = node.srt.withNumber(node.srt.number + shift);
+        SRT newSRT = operator.apply(srt);
+        if (newSRT.number != srt.number) {
+            throw new IllegalArgumentException("Subtitle number " + srt.number
+                + " must not be changed to " + newSRT.number);
+        }
+        Node right = map(node.right, shift, operator);
+        if (newSRT == srt && left == node.left && right == node.right) {
+            return node;
+        }
+        return new Node((newSRT == srt) ? node.srt : newSRT.withNumber(node.srt.number),
+            node.priority, node.shift, left, right);
+    }
+    
+    /**
+     * Replaces each SRT object with a subtitle number in the range with the
+     * result of the operator.
+     */
+    static Node map(Node root, int fromNumber, int toNumber, UnaryOperator<SRT> operator) {
+        Node[] lower = split(root, fromNumber);
+        Node[] upper = split(lower[1], toNumber + 1L);
+        Node middle = map(upper[0], operator);
+        if (middle == upper[0]) {
+            return root;
+        }
+        return merge(merge(lower[0], middle), upper[1]);
+    }
+    
+    /**
+     * Removes the SRT objects with subtitle numbers in the range and
+     * decrements the subtitle numbers of the SRT objects after the range by
+     * the number of removed SRT objects.
+     */
+    static Node delete(Node root, int fromNumber, int toNumber) {
+        Node[] lower = split(root, fromNumber);
+        Node[] upper = split(lower[1], toNumber + 1L);
+        if (upper[0] == null) {
+            return root;
+        }
+        return merge(lower[0], shift(upper[1], -upper[0].size));
+    }
+    
+    static boolean contains(Node root, int number) {
+        int shift = 0;
+        for (Node node = root; node != null; ) {
+            shift += node.shift;
+            int n = node.srt.number + shift;
+            if (n == number) {
+                return true;
+            }
+            node = (n > number) ? node.left : node.right;
+        }
+        return false;
+    }
+    
+    /**
+     * Gets the SRT object with the subtitle number or, if there is none, the
+     * SRT object with the next higher subtitle number.
+     */
+    static SRT ceiling(Node root, int number) {
+        Node best = null;
+        int bestNumber = 0;
+        int shift = 0;
+        for (Node node = root; node != null; ) {
+            shift += node.shift;
+            int n = node.srt.number + shift;
+            if (n == number) {
+                return node.srt.withNumber(n);
+            }
+            if (n > number) {
+                best = node;
+                bestNumber = n;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        if (best == null) {
+            throw new NoSuchElementException();
+        }
+        return best.srt.withNumber(bestNumber);
+    }
+    
+    /**
+     * Gets the SRT objects that start within the [startTime, endTime]
+     * interval in subtitle number order.
+     */
+    static List<SRT> starting(Node root, long startTime, long endTime) {
+        List<SRT> result = new ArrayList<>();
+        if (startTime <= endTime) {
+            starting(root, 0, startTime, endTime, result);
+        }
+        return result;
+    }
+    
+    private static void starting(Node node, int shift, long startTime, long endTime,
+        List<SRT> result) {
+        while (node != null && node.maxStartTime >= startTime
+            && node.minStartTime <= endTime) {
+            shift += node.shift;
+            starting(node.left, shift, startTime, endTime, result);
+            if (node.srt.startTime >= startTime && node.srt.startTime <= endTime) {
+                result.add(node.srt.withNumber(node.srt.number + shift));
+            }
+            node = node.right;
+        }
+    }
+    
+    /**
+     * Gets the SRT objects that overlap the [startTime, endTime] interval in
+     * subtitle number order. Each SRT object covers the half-open interval
+     * [startTime, endTime).
+     */
+    static List<SRT> overlapping(Node root, long startTime, long endTime) {
+        List<SRT> result = new ArrayList<>();
+        if (startTime <= endTime) {
+            overlapping(root, 0, startTime, endTime, result);
+        }
+        return result;
+    }
+    
+    private static void overlapping(Node node, int shift, long startTime, long endTime,
+        List<SRT> result) {
+        while (node != null && node.maxEndTime > startTime
+            && node.minStartTime <= endTime) {
+            shift += node.shift;
+            overlapping(node.left, shift, startTime, endTime, result);
+            if (node.srt.startTime <= endTime && node.srt.endTime > startTime) {
+                result.add(node.srt.withNumber(node.srt.number + shift));
+            }
+            node = node.right;
+        }
+    }
+    
+    /**
+     * Gets the first SRT object that starts after the given time or null if
+     * there is none. If several SRT objects start at the same time, the one
+     * with the lowest subtitle number is returned.
+     */
+    static SRT nextAfter(Node root, long time) {
+        return nextAfter(root, 0, time, null);
+    }
+    
+    private static SRT nextAfter(Node node, int shift, long time, SRT best) {
+        // the subtrees are visited in subtitle number order, so a later SRT
+        // object only wins if it starts strictly earlier
+        while (node != null && node.maxStartTime > time
+            && (best == null || node.minStartTime < best.startTime)) {
+            shift += node.shift;
+            best = nextAfter(node.left, shift, time, best);
+            if (node.srt.startTime > time
+                && (best == null || node.srt.startTime < best.startTime)) {
+                best = node.srt.withNumber(node.srt.number + shift);
+            }
+            node = node.right;
+        }
+        return best;
+    }
+    
+    /**
+     * Iterates the SRT objects in subtitle number order.
+     */
+    static Iterator<SRT> iterator(final Node root) {
+        return new Iterator<SRT>() {
+            // the expected depth of a treap is logarithmic, but the stack
+            // grows when needed
+            private Node[] nodes = new Node[64];
+            private int[] shifts = new int[64];
+            private int top = -1;
+            
+            {
+                pushLeft(root, 0);
+            }
+            
+            private void pushLeft(Node node, int shift) {
+                for (; node != null; node = node.left) {
+                    shift += node.shift;
+                    if (++top == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, top * 2);
+                        shifts = Arrays.copyOf(shifts, top * 2);
+                    }
+                    nodes[top] = node;
+                    shifts[top] = shift;
+                }
+            }
+            
+            @Override
+            public boolean hasNext() {
+                return top >= 0;
+            }
+            
+            @Override
+            public SRT next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Node node = nodes[top];
+                int shift = shifts[top];
+                nodes[top--] = null;
+                pushLeft(node.right, shift);
+                return node.srt.withNumber(node.srt.number + shift);
+            }
+            
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -22,9 +22,28 @@
  */
 package org.fredy.jsrt.api;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
 
 /**
  * This class is responsible for writing an SRT file.
@@ -32,6 +51,74 @@ import java.io.PrintWriter;
  * @author fredy
  */
 public class SRTWriter {
+    private static final int MIN_CHUNK_SIZE = 1 << 12;
+    
+    /**
+     * A task that encodes a range of SRT objects into byte buffers.
+     */
+    private static class EncodeTask extends RecursiveAction implements WritableByteChannel {
+        private static final long serialVersionUID = 1L;
+        private final SRT[] srts;
+        private final int from;
+        private final int to;
+        private final Charset charset;
+        private final String lineSeparator;
+        private final List<ByteBuffer> buffers = new ArrayList<>();
+        
+        public EncodeTask(SRT[] srts, int from, int to, Charset charset,
+            String lineSeparator) {
+            this.srts = srts;
+            this.from = from;
+            this.to = to;
+            this.charset = charset;
+            this.lineSeparator = lineSeparator;
+        }
+        
+        @Override
+        protected void compute() {
+            SRTEncoder encoder = new SRTEncoder(this, charset, lineSeparator);
+            try {
+                for (int i = from; i < to; i++) {
+                    encoder.encode(srts[i]);
+                }
+                encoder.flush();
+            } catch (IOException e) {
+                throw new SRTWriterException(e);
+            }
+        }
+        
+        /**
+         * Copies the bytes encoded by the encoder, whose buffer is reused.
+         */
+        @Override
+        public int write(ByteBuffer src) {
+            ByteBuffer buffer = ByteBuffer.allocate(src.remaining());
+            buffer.put(src).flip();
+            buffers.add(buffer);
+            return buffer.limit();
+        }
+        
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+        
+        @Override
+        public void close() {
+        }
+        
+        public void writeTo(FileChannel channel) throws IOException {
+            ByteBuffer[] srcs = buffers.toArray(new ByteBuffer[buffers.size()]);
+            buffers.clear();
+            for (int i = 0; i < srcs.length; ) {
+                channel.write(srcs, i, srcs.length - i);
+                while (i < srcs.length && !srcs[i].hasRemaining()) {
+                    i++;
+                }
+            }
+        }
+    }
+    
     public SRTWriter() {
     }
     
@@ -43,21 +130,397 @@ public class SRTWriter {
      * @throws SRTWriterException thrown while writing an SRT file
      */
     public static void write(File srtFile, SRTInfo srtInfo) throws SRTWriterException {
-        try (PrintWriter pw = new PrintWriter(srtFile)) {
-            for (SRT srt : srtInfo) {
-                pw.println(srt.number);
-                pw.println(
-                    SRTTimeFormat.format(srt.startTime) +
-                    SRTTimeFormat.TIME_DELIMITER +
-                    SRTTimeFormat.format(srt.endTime));
-                for (String text : srt.text) {
-                    pw.println(text);
+        write(srtFile, (Iterable<SRT>) srtInfo);
+    }
+    
+    /**
+     * Writes an SRT file from SRT objects, e.g. a view over an SRTInfo object.
+     * The file is written with the platform default charset and line
+     * separator.
+     * 
+     * @param srtFile the SRT file
+     * @param srts the SRT objects in subtitle number order
+     * @throws SRTWriterException thrown while writing an SRT file
+     */
+    public static void write(File srtFile, Iterable<SRT> srts) throws SRTWriterException {
+        try (FileChannel channel = FileChannel.open(srtFile.toPath(),
+            StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, srts.iterator(), Charset.defaultCharset(), System.lineSeparator());
+        } catch (IOException e) {
+            throw new SRTWriterException(e);
+        }
+    }
+    
+    /**
+     * Writes an SRT file from an SRT object using the common fork/join pool.
+     * See {@link #writeParallel(File, SRTInfo, ForkJoinPool)}.
+     * 
+     * @param srtFile the SRT file
+     * @param srtInfo the SRTInfo object
+     * @throws SRTWriterException thrown while writing an SRT file
+     */
+    public static void writeParallel(File srtFile, SRTInfo srtInfo) throws SRTWriterException {
+        writeParallel(srtFile, srtInfo, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Writes an SRT file from an SRT object. The SRT objects are split into
+     * chunks that are encoded to bytes in parallel. The encoded chunks are
+     * written to the SRT file in order with gathering writes as soon as they
+     * are ready, so the chunks that are encoded ahead of the one being
+     * written are kept in memory. This method produces the same file as
+     * {@link #write(File, SRTInfo)}.
+     * 
+     * <p>Small SRTInfo objects are written by the calling thread. If the
+     * default charset is not compatible with ASCII, e.g. UTF-16, this method
+     * falls back to {@link #write(File, SRTInfo)}.</p>
+     * 
+     * @param srtFile the SRT file
+     * @param srtInfo the SRTInfo object
+     * @param pool the fork/join pool that encodes the chunks
+     * @throws SRTWriterException thrown while writing an SRT file
+     */
+    public static void writeParallel(File srtFile, SRTInfo srtInfo, ForkJoinPool pool)
+        throws SRTWriterException {
+        Charset charset = Charset.defaultCharset();
+        String lineSeparator = System.lineSeparator();
+        List<SRT> list = new ArrayList<>(srtInfo.size());
+        for (SRT srt : srtInfo) {
+            list.add(srt);
+        }
+        SRT[] srts = list.toArray(new SRT[list.size()]);
+        int nChunks = (int) Math.min(pool.getParallelism() * 4L, srts.length / MIN_CHUNK_SIZE);
+        if (nChunks <= 1 || !SRTEncoder.isSupported(charset)) {
+            write(srtFile, list);
+            return;
+        }
+        
+        List<EncodeTask> tasks = new ArrayList<>();
+        for (int i = 0; i < nChunks; i++) {
+            tasks.add(new EncodeTask(srts, (int) ((long) srts.length * i / nChunks),
+                (int) ((long) srts.length * (i + 1) / nChunks), charset, lineSeparator));
+        }
+        try (FileChannel channel = FileChannel.open(srtFile.toPath(),
+            StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+            StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (EncodeTask task : tasks) {
+                pool.execute(task);
+            }
+            for (EncodeTask task : tasks) {
+                task.join();
+                task.writeTo(channel);
+            }
+        } catch (IOException e) {
+            throw new SRTWriterException(e);
+        } finally {
+            for (EncodeTask task : tasks) {
+                task.cancel(false);
+            }
+        }
+    }
+    
+    /**
+     * Writes an SRT file from an SRT object, copying the bytes of the SRT
+     * objects that have not been changed since they were read. The SRT objects
+     * that are recorded in the source map are copied from the source map file
+     * with {@link FileChannel#transferTo(long, long, WritableByteChannel)}, and
+     * only the other SRT objects are encoded. The SRT file is written to a
+     * temporary file in the same directory, which then replaces the SRT file
+     * atomically if the file system supports it.
+     * 
+     * <p>Afterwards the source map records the SRT objects of the new SRT file,
+     * so it can be used for the next write. If the source map file has been
+     * modified since the source map was filled, or if the default charset is
+     * not compatible with ASCII, all the SRT objects are encoded. The copied
+     * SRT objects keep their bytes, e.g. their line terminators, so the SRT file
+     * is only the same as the one written by {@link #write(File, SRTInfo)} if
+     * the source map file was.</p>
+     * 
+     * @param srtFile the SRT file
+     * @param srtInfo the SRTInfo object
+     * @param sourceMap the source map, e.g. filled by
+     *        {@link SRTReader#readMapped(File, SRTSourceMap)}
+     * @throws SRTWriterException thrown while writing an SRT file
+     */
+    public static void writeIncremental(File srtFile, SRTInfo srtInfo, SRTSourceMap sourceMap)
+        throws SRTWriterException {
+        Charset charset = Charset.defaultCharset();
+        if (!SRTEncoder.isSupported(charset)) {
+            sourceMap.clear();
+            write(srtFile, srtInfo);
+            return;
+        }
+        
+        Path target = srtFile.toPath().toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        SRTSourceMap newSourceMap;
+        try {
+            newSourceMap = writeIncremental(temp, srtFile, srtInfo, sourceMap, charset);
+            move(temp, target);
+        } catch (IOException e) {
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // the IOException that matters is thrown below
+            }
+            throw new SRTWriterException(e);
+        }
+        try {
+            newSourceMap.commit();
+            sourceMap.set(newSourceMap);
+        } catch (IOException e) {
+            // the SRT file has been written, only the next write encodes again
+            sourceMap.clear();
+        }
+    }
+    
+    /**
+     * Writes the SRT objects to a temporary file like
+     * {@link #writeIncremental(File, SRTInfo, SRTSourceMap)} and forces it to
+     * the storage device. The temporary file is not moved.
+     * 
+     * @param temp the temporary file
+     * @param srtFile the SRT file that the temporary file is going to replace
+     * @param srts the SRT objects in subtitle number order
+     * @param sourceMap the source map
+     * @param charset the charset, which must be supported by SRTEncoder
+     * @return the source map of the SRT file, which must be committed once
+     *         the temporary file has been moved
+     * @throws IOException thrown while writing the temporary file
+     */
+    static SRTSourceMap writeIncremental(Path temp, File srtFile, Iterable<SRT> srts,
+        SRTSourceMap sourceMap, Charset charset) throws IOException {
+        SRTSourceMap newSourceMap = new SRTSourceMap();
+        newSourceMap.reset(srtFile, charset);
+        boolean copy = sourceMap.isValid(charset);
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            FileChannel in = copy ? FileChannel.open(sourceMap.getFile().toPath(),
+                StandardOpenOption.READ) : null) {
+            SRTEncoder encoder = new SRTEncoder(out, charset, System.lineSeparator());
+            // consecutive SRT objects that are next to each other in the
+            // source map file are copied at once
+            long copyStart = 0;
+            long copyEnd = 0;
+            for (SRT srt : srts) {
+                long start = encoder.position() + copyEnd - copyStart;
+                int index = copy ? sourceMap.indexOf(srt) : -1;
+                if (index >= 0) {
+                    if (sourceMap.start(index) != copyEnd) {
+                        transfer(in, copyStart, copyEnd, out, encoder);
+                        copyStart = sourceMap.start(index);
+                    }
+                    copyEnd = sourceMap.end(index);
+                } else {
+                    transfer(in, copyStart, copyEnd, out, encoder);
+                    copyStart = copyEnd = 0;
+                    encoder.encode(srt);
+                }
+                newSourceMap.add(srt, start, encoder.position() + copyEnd - copyStart);
+            }
+            transfer(in, copyStart, copyEnd, out, encoder);
+            encoder.flush();
+            out.force(false);
+        }
+        return newSourceMap;
+    }
+    
+    /**
+     * Moves a file, replacing the target atomically if the file system
+     * supports it. The directory is forced to the storage device afterwards,
+     * so the move survives a power loss.
+     * 
+     * @param source the file to move
+     * @param target the target file
+     * @throws IOException thrown while moving the file
+     */
+    static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        FileChannel directory;
+        try {
+            directory = FileChannel.open(target.getParent(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            // some platforms, e.g. Windows, cannot open directories
+            return;
+        }
+        try {
+            directory.force(true);
+        } finally {
+            directory.close();
+        }
+    }
+    
+    private static void transfer(FileChannel in, long start, long end, FileChannel out,
+        SRTEncoder encoder) throws IOException {
+        if (start == end) {
+            return;
+        }
+        encoder.flush();
+        for (long position = start; position < end; ) {
+            long count = in.transferTo(position, end - position, out);
+            if (count == 0 && position >= in.size()) {
+                throw new IOException("The source map file has been truncated");
+            }
+            position += count;
+        }
+        encoder.skip(end - start);
+    }
+    
+    /**
+     * Writes SRT objects to an output stream. The SRT objects are written as
+     * they are taken from the iterator, so the memory used does not depend on
+     * the number of SRT objects. The output stream is flushed but not closed.
+     * 
+     * @param out the output stream
+     * @param srts the SRT objects in subtitle number order
+     * @param charset the charset
+     * @param lineSeparator the line separator, e.g. "\r\n"
+     * @throws SRTWriterException thrown while writing the SRT objects
+     */
+    public static void write(OutputStream out, Iterator<SRT> srts, Charset charset,
+        String lineSeparator) throws SRTWriterException {
+        if (SRTEncoder.isSupported(charset)) {
+            encode(Channels.newChannel(out), srts, charset, lineSeparator);
+            try {
+                out.flush();
+            } catch (IOException e) {
+                throw new SRTWriterException(e);
+            }
+        } else {
+            write(new BufferedWriter(new OutputStreamWriter(out, charset)), srts, lineSeparator);
+        }
+    }
+    
+    /**
+     * Writes SRT objects to an output stream. The output stream is flushed
+     * but not closed.
+     * 
+     * @see #write(OutputStream, Iterator, Charset, String)
+     * @param out the output stream
+     * @param srts the SRT objects in subtitle number order
+     * @param charset the charset
+     * @param lineSeparator the line separator, e.g. "\r\n"
+     * @throws SRTWriterException thrown while writing the SRT objects
+     */
+    public static void write(OutputStream out, Stream<SRT> srts, Charset charset,
+        String lineSeparator) throws SRTWriterException {
+        write(out, srts.iterator(), charset, lineSeparator);
+    }
+    
+    /**
+     * Writes SRT objects to a channel. The SRT objects are written as they
+     * are taken from the iterator, so the memory used does not depend on the
+     * number of SRT objects. The channel is not closed.
+     * 
+     * @param channel the channel
+     * @param srts the SRT objects in subtitle number order
+     * @param charset the charset
+     * @param lineSeparator the line separator, e.g. "\r\n"
+     * @throws SRTWriterException thrown while writing the SRT objects
+     */
+    public static void write(WritableByteChannel channel, Iterator<SRT> srts, Charset charset,
+        String lineSeparator) throws SRTWriterException {
+        if (SRTEncoder.isSupported(charset)) {
+            encode(channel, srts, charset, lineSeparator);
+        } else {
+            write(Channels.newOutputStream(channel), srts, charset, lineSeparator);
+        }
+    }
+    
+    /**
+     * Writes SRT objects to a channel. The channel is not closed.
+     * 
+     * @see #write(WritableByteChannel, Iterator, Charset, String)
+     * @param channel the channel
+     * @param srts the SRT objects in subtitle number order
+     * @param charset the charset
+     * @param lineSeparator the line separator, e.g. "\r\n"
+     * @throws SRTWriterException thrown while writing the SRT objects
+     */
+    public static void write(WritableByteChannel channel, Stream<SRT> srts, Charset charset,
+        String lineSeparator) throws SRTWriterException {
+        write(channel, srts.iterator(), charset, lineSeparator);
+    }
+    
+    /**
+     * Writes SRT objects to a writer. The SRT objects are written as they are
+     * taken from the iterator, so the memory used does not depend on the
+     * number of SRT objects. The writer is flushed but not closed.
+     * 
+     * @param writer the writer
+     * @param srts the SRT objects in subtitle number order
+     * @param lineSeparator the line separator, e.g. "\r\n"
+     * @throws SRTWriterException thrown while writing the SRT objects
+     */
+    public static void write(Writer writer, Iterator<SRT> srts, String lineSeparator)
+        throws SRTWriterException {
+        char[] timeLine = newTimeLine();
+        try {
+            while (srts.hasNext()) {
+                SRT srt = srts.next();
+                writer.write(Integer.toString(srt.number));
+                writer.write(lineSeparator);
+                formatTimeLine(srt, timeLine);
+                writer.write(timeLine);
+                writer.write(lineSeparator);
+                // write the lines straight from the text block
+                SRTText text = (SRTText) srt.text;
+                for (int i = 0; i < text.size(); i++) {
+                    writer.write(text.block(), text.start(i), text.end(i) - text.start(i));
+                    writer.write(lineSeparator);
                 }
                 // Add an empty line at the end
-                pw.println();
+                writer.write(lineSeparator);
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new SRTWriterException(e);
+        }
+    }
+    
+    /**
+     * Writes SRT objects to a writer. The writer is flushed but not closed.
+     * 
+     * @see #write(Writer, Iterator, String)
+     * @param writer the writer
+     * @param srts the SRT objects in subtitle number order
+     * @param lineSeparator the line separator, e.g. "\r\n"
+     * @throws SRTWriterException thrown while writing the SRT objects
+     */
+    public static void write(Writer writer, Stream<SRT> srts, String lineSeparator)
+        throws SRTWriterException {
+        write(writer, srts.iterator(), lineSeparator);
+    }
+    
+    private static void encode(WritableByteChannel channel, Iterator<SRT> srts,
+        Charset charset, String lineSeparator) throws SRTWriterException {
+        SRTEncoder encoder = new SRTEncoder(channel, charset, lineSeparator);
+        try {
+            while (srts.hasNext()) {
+                encoder.encode(srts.next());
             }
+            encoder.flush();
         } catch (IOException e) {
             throw new SRTWriterException(e);
         }
     }
+    
+    private static char[] newTimeLine() {
+        char[] timeLine = new char[SRTTimeCodec.LENGTH * 2 + SRTTimeFormat.TIME_DELIMITER.length()];
+        SRTTimeFormat.TIME_DELIMITER.getChars(0, SRTTimeFormat.TIME_DELIMITER.length(),
+            timeLine, SRTTimeCodec.LENGTH);
+        return timeLine;
+    }
+    
+    private static void formatTimeLine(SRT srt, char[] timeLine) {
+        SRTTimeCodec.format(srt.startTime, timeLine, 0);
+        SRTTimeCodec.format(srt.endTime, timeLine,
+            timeLine.length - SRTTimeCodec.LENGTH);
+    }
 }
@@ -24,14 +24,14 @@ package org.fredy.jsrt.editor;
 
 import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 import org.fredy.jsrt.api.SRT;
 import org.fredy.jsrt.api.SRTInfo;
+import org.fredy.jsrt.api.SRTText;
 import org.fredy.jsrt.api.SRTTimeFormat;
-import org.fredy.jsrt.util.StringUtils;
 
 /**
  * This class performs high-level operations related to editing SRT.
@@ -42,6 +42,17 @@ public class SRTEditor {
     private SRTEditor() {
     }
     
+    /**
+     * Begins a transaction that collects editing operations for the SRTInfo
+     * object and applies them atomically when committed.
+     * 
+     * @param info the SRTInfo object
+     * @return the SRTTransaction object
+     */
+    public static SRTTransaction beginTransaction(SRTInfo info) {
+        return new SRTTransaction(info);
+    }
+    
     /**
      * Updates time of the SRT object in the SRTInfo object. This method will
      * update both start time and end time.
@@ -68,11 +79,56 @@ public class SRTEditor {
      * @param value the time value
      */
     public static void updateTimes(SRTInfo info, SRTTimeFormat.Type type, int value) {
-        for (int i = 1; i <= info.size(); i++) {
-            updateTime(info, info.get(i).number, type, value);
+        info.replaceAll(srt -> setTime(srt, type, value));
+    }
+    
+    /**
+     * Updates the times of the SRT objects with subtitle numbers between
+     * fromNumber and toNumber, both inclusive. This method will update both
+     * start time and end time.
+     * 
+     * @param info the SRTInfo object
+     * @param fromNumber the first subtitle number
+     * @param toNumber the last subtitle number
+     * @param type the SRT time format object
+     * @param value the time value
+     */
+    public static void updateTimes(SRTInfo info, int fromNumber, int toNumber,
+        SRTTimeFormat.Type type, int value) {
+        checkRange(fromNumber, toNumber);
+        info.replaceAll(fromNumber, toNumber, srt -> setTime(srt, type, value));
+    }
+    
+    /**
+     * Updates the times of the SRT objects that start between startTime and
+     * endTime, both inclusive. This method will update both start time and
+     * end time.
+     * 
+     * @param info the SRTInfo object
+     * @param startTime the start time of the time window
+     * @param endTime the end time of the time window
+     * @param type the SRT time format object
+     * @param value the time value
+     */
+    public static void updateTimes(SRTInfo info, String startTime, String endTime,
+        SRTTimeFormat.Type type, int value) {
+        for (SRT srt : getStarting(info, startTime, endTime)) {
+            info.add(setTime(srt, type, value));
         }
     }
     
+    /**
+     * Updates the times of all SRT objects in the SRTInfo object with the
+     * retimer, e.g. to convert the frame rate or to sync the subtitles with
+     * anchors.
+     * 
+     * @param info the SRTInfo object
+     * @param retimer the SRTRetimer object
+     */
+    public static void updateTimes(SRTInfo info, SRTRetimer retimer) {
+        retimer.retime(info);
+    }
+    
     /**
      * Creates a new SRT.
      * 
@@ -82,28 +138,28 @@ public class SRTEditor {
      * @return the new SRT object
      */
     static SRT setTime(SRT srt, SRTTimeFormat.Type type, int value) {
-        return new SRT(srt.number, newDate(srt.startTime, type, value),
-            newDate(srt.endTime, type, value), srt.text);
+        long millis = toMillis(type, value);
+        return srt.withTimes(srt.startTime + millis, srt.endTime + millis);
     }
     
-    private static Date newDate(Date oldDate, SRTTimeFormat.Type type, int value) {
-        Calendar newCal = Calendar.getInstance();
-        newCal.setTime(oldDate);
+    /**
+     * Converts the time value of the given type to milliseconds.
+     * 
+     * @param type the SRTTimeFormat
+     * @param value the time value
+     * @return the time value in milliseconds
+     */
+    public static long toMillis(SRTTimeFormat.Type type, int value) {
         switch (type) {
         case HOUR:
-            newCal.add(Calendar.HOUR_OF_DAY, value);
-            break;
+            return value * 60L * 60L * 1000L;
         case MINUTE:
-            newCal.add(Calendar.MINUTE, value);
-            break;
+            return value * 60L * 1000L;
         case SECOND:
-            newCal.add(Calendar.SECOND, value);
-            break;
-        case MILLISECOND:
-            newCal.add(Calendar.MILLISECOND, value);
-            break;
+            return value * 1000L;
+        default:
+            return value;
         }
-        return newCal.getTime();
     }
     
     /**
@@ -120,6 +176,23 @@ public class SRTEditor {
         info.add(breakText(info.get(subtitleNumber), width));
     }
     
+    /**
+     * Updates a subtitle text according to the width in pixels given, as
+     * rendered with the font of the font metrics.
+     * 
+     * @param info the SRTInfo object
+     * @param subtitleNumber the subtitle number
+     * @param metrics the font metrics
+     * @param width the width in pixels
+     */
+    public static void updateText(SRTInfo info, int subtitleNumber,
+        SRTFontMetrics metrics, int width) {
+        if (!info.contains(subtitleNumber)) {
+            throw new SRTEditorException(subtitleNumber + " could not be found");
+        }
+        info.add(breakText(info.get(subtitleNumber), metrics, width));
+    }
+    
     /**
      * Updates all subtitle texts according to the width given.
      * 
@@ -127,40 +200,111 @@ public class SRTEditor {
      * @param width the width (number of characters per subtitle line)
      */
     public static void updateTexts(SRTInfo info, int width) {
-        for (int i = 1; i <= info.size(); i++) {
-            updateText(info, info.get(i).number, width);
+        info.replaceAll(srt -> breakText(srt, width));
+    }
+    
+    /**
+     * Updates all subtitle texts according to the width in pixels given, as
+     * rendered with the font of the font metrics.
+     * 
+     * @param info the SRTInfo object
+     * @param metrics the font metrics
+     * @param width the width in pixels
+     */
+    public static void updateTexts(SRTInfo info, SRTFontMetrics metrics, int width) {
+        info.replaceAll(srt -> breakText(srt, metrics, width));
+    }
+    
+    /**
+     * Updates the subtitle texts with subtitle numbers between fromNumber and
+     * toNumber, both inclusive, according to the width given.
+     * 
+     * @param info the SRTInfo object
+     * @param fromNumber the first subtitle number
+     * @param toNumber the last subtitle number
+     * @param width the width (number of characters per subtitle line)
+     */
+    public static void updateTexts(SRTInfo info, int fromNumber, int toNumber, int width) {
+        checkRange(fromNumber, toNumber);
+        info.replaceAll(fromNumber, toNumber, srt -> breakText(srt, width));
+    }
+    
+    /**
+     * Updates the texts of the subtitles that start between startTime and
+     * endTime, both inclusive, according to the width given.
+     * 
+     * @param info the SRTInfo object
+     * @param startTime the start time of the time window
+     * @param endTime the end time of the time window
+     * @param width the width (number of characters per subtitle line)
+     */
+    public static void updateTexts(SRTInfo info, String startTime, String endTime,
+        int width) {
+        for (SRT srt : getStarting(info, startTime, endTime)) {
+            info.add(breakText(srt, width));
+        }
+    }
+    
+    /**
+     * Updates all subtitle texts according to the width given. The texts
+     * are broken in parallel in the common fork/join pool.
+     * 
+     * @param info the SRTInfo object
+     * @param width the width (number of characters per subtitle line)
+     */
+    public static void updateTextsParallel(SRTInfo info, int width) {
+        updateTextsParallel(info, srt -> breakText(srt, width));
+    }
+    
+    /**
+     * Updates all subtitle texts according to the width in pixels given, as
+     * rendered with the font of the font metrics. The texts are broken in
+     * parallel in the common fork/join pool.
+     * 
+     * @param info the SRTInfo object
+     * @param metrics the font metrics
+     * @param width the width in pixels
+     */
+    public static void updateTextsParallel(SRTInfo info, SRTFontMetrics metrics, int width) {
+        updateTextsParallel(info, srt -> breakText(srt, metrics, width));
+    }
+    
+    private static void updateTextsParallel(SRTInfo info, UnaryOperator<SRT> breaker) {
+        List<SRT> srts = new ArrayList<>(info.size());
+        for (SRT srt : info) {
+            srts.add(srt);
         }
+        List<SRT> newSRTs = srts.parallelStream()
+            .map(breaker)
+            .collect(Collectors.toList());
+        info.setAll(new SRTInfo.Builder().addAll(newSRTs).build());
     }
     
     /**
      * Breaks the subtitle according to the width.
      * 
+     * @see SRTLineBreaker#breakLines(List, int)
      * @param srt the SRT object
      * @param width the width (number of characters per subtitle line)
      * @return the new SRT
      */
     static SRT breakText(SRT srt, int width) {
-        List<String> newTexts = new ArrayList<>();
-        String subtitle = StringUtils.join(srt.text, " ");
-        if (subtitle.length() <= width) {
-            newTexts.addAll(srt.text);
-        } else {
-            int begin = 0;
-            int end = width;
-            while (end < subtitle.length()) {
-                while (subtitle.charAt(end) != ' ' && end != 0) {
-                    end--;
-                }
-                if (end == 0) {
-                    break;
-                }
-                newTexts.add(subtitle.substring(begin, end));
-                begin = end + 1;
-                end = begin + width;
-            }
-            newTexts.add(subtitle.substring(begin, subtitle.length()));
-        }
-        return new SRT(srt.number, srt.startTime, srt.endTime, newTexts);
+        SRTText text = SRTLineBreaker.breakLines(srt.text, width);
+        return (text == srt.text) ? srt : srt.withText(text);
+    }
+    
+    /**
+     * Breaks the subtitle according to the width in pixels.
+     * 
+     * @see SRTLineBreaker#breakLines(List, int, SRTFontMetrics)
+     * @param srt the SRT object
+     * @param metrics the font metrics
+     * @param width the width in pixels
+     * @return the new SRT
+     */
+    static SRT breakText(SRT srt, SRTFontMetrics metrics, int width) {
+        SRTText text = SRTLineBreaker.breakLines(srt.text, width, metrics);
+        return (text == srt.text) ? srt : srt.withText(text);
     }
     
     /**
@@ -173,23 +317,17 @@ public class SRTEditor {
      */
     public static void appendSubtitle(SRTInfo info, String startTime,
         String endTime, List<String> text) {
-        try {
-            SRT newSRT = new SRT(
-                info.size() + 1,
-                SRTTimeFormat.parse(startTime),
-                SRTTimeFormat.parse(endTime),
-                text);
-            info.add(newSRT);
-        } catch (ParseException e) {
-            throw new SRTEditorException(e);
-        }
+        SRT newSRT = new SRT(
+            info.size() + 1,
+            parseTime(startTime),
+            parseTime(endTime),
+            text);
+        info.add(newSRT);
     }
     
     /**
-     * Prepends the subtitle into SRTInfo object.
-     * 
-     * This operation is very expensive since it needs to update all the subtitle
-     * numbers.
+     * Prepends the subtitle into SRTInfo object. All the subsequent subtitle
+     * numbers are updated.
      * 
      * @param info the SRTInfo object
      * @param startTime the start time
@@ -218,17 +356,8 @@ public class SRTEditor {
             throw new SRTEditorException(subtitleNumber + " could not be found");
         }
         
-        for (int i = info.size(); i >= subtitleNumber; i--) {
-            SRT tmp = info.get(i);
-            info.add(new SRT(tmp.number+1, tmp.startTime, tmp.endTime, tmp.text));
-        }
-        
-        try {
-            info.add(new SRT(subtitleNumber, SRTTimeFormat.parse(startTime),
-                SRTTimeFormat.parse(endTime), text));
-        } catch (ParseException e) {
-            throw new SRTEditorException(e);
-        }
+        info.insert(new SRT(subtitleNumber, parseTime(startTime),
+            parseTime(endTime), text));
     }
     
     /**
@@ -240,12 +369,7 @@ public class SRTEditor {
      * @param newSRT the new SRT
      */
     public static void insertSubtitle(SRTInfo info, SRT newSRT) {
-        for (int i = info.size(); i >= newSRT.number; i--) {
-            SRT tmp = info.get(i);
-            info.add(new SRT(tmp.number+1, tmp.startTime, tmp.endTime, tmp.text));
-        }
-        
-        info.add(newSRT);
+        info.insert(newSRT);
     }
     
     /**
@@ -261,13 +385,61 @@ public class SRTEditor {
             throw new SRTEditorException(subtitleNumber + " could not be found");
         }
         
-        int originalSize = info.size();
-        for (int i = subtitleNumber+1; i  <= originalSize; i++) {
-            SRT tmp = info.get(i);
-            info.add(new SRT(tmp.number-1, tmp.startTime, tmp.endTime, tmp.text));
+        info.delete(subtitleNumber);
+    }
+    
+    /**
+     * Removes the subtitles with subtitle numbers between fromNumber and
+     * toNumber, both inclusive, from SRTInfo. The subtitles after them are
+     * renumbered.
+     * 
+     * @param info the SRTInfo object
+     * @param fromNumber the first subtitle number
+     * @param toNumber the last subtitle number
+     */
+    public static void removeSubtitles(SRTInfo info, int fromNumber, int toNumber) {
+        checkRange(fromNumber, toNumber);
+        info.delete(fromNumber, toNumber);
+    }
+    
+    /**
+     * Removes the subtitles that start between startTime and endTime, both
+     * inclusive, from SRTInfo. The subtitles after them are renumbered.
+     * 
+     * @param info the SRTInfo object
+     * @param startTime the start time of the time window
+     * @param endTime the end time of the time window
+     */
+    public static void removeSubtitles(SRTInfo info, String startTime, String endTime) {
+        List<SRT> srts = getStarting(info, startTime, endTime);
+        // delete from the highest number, so the lower numbers stay valid
+        srts.sort((srt1, srt2) -> Integer.compare(srt2.number, srt1.number));
+        for (SRT srt : srts) {
+            info.delete(srt.number);
+        }
+    }
+    
+    private static void checkRange(int fromNumber, int toNumber) {
+        if (fromNumber > toNumber) {
+            throw new SRTEditorException("Invalid range: " + fromNumber + " > " + toNumber);
+        }
+    }
+    
+    static List<SRT> getStarting(SRTInfo info, String startTime, String endTime) {
+        long start = parseTime(startTime);
+        long end = parseTime(endTime);
+        if (start > end) {
+            throw new SRTEditorException("Invalid time window: " + startTime + " > " + endTime);
+        }
+        return info.getStarting(start, end);
+    }
+    
+    private static long parseTime(String time) {
+        try {
+            return SRTTimeFormat.parseMillis(time);
+        } catch (ParseException e) {
+            throw new SRTEditorException(e);
         }
-        // Remove the last element
-        info.remove(info.size());
     }
     
     /**
@@ -0,0 +1,133 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.editor;
+
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * This class measures the rendered width of subtitle text in pixels with
+ * the metrics of a font. It works in headless environments.
+ * 
+ * The advance widths of the characters are looked up once per block of 256
+ * characters and cached in int arrays, so measuring text costs an array
+ * lookup per character. The width of a text is the sum of the advance widths
+ * of its characters, i.e. kerning is ignored. SRTFontMetrics objects are
+ * thread-safe.
+ * 
+ * @author fredy
+ */
+public final class SRTFontMetrics implements SRTLineBreaker.Measure {
+    private static final int PAGE_BITS = 8;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    
+    private final Font font;
+    private final FontMetrics metrics;
+    private final AtomicReferenceArray<int[]> pages =
+        new AtomicReferenceArray<>((Character.MAX_VALUE + 1) >> PAGE_BITS);
+    
+    /**
+     * Creates a new instance of SRTFontMetrics.
+     * 
+     * @param font the font used to render the subtitles
+     */
+    public SRTFontMetrics(Font font) {
+        this.font = font;
+        Graphics2D graphics = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB).createGraphics();
+        try {
+            metrics = graphics.getFontMetrics(font);
+        } finally {
+            graphics.dispose();
+        }
+    }
+    
+    /**
+     * Creates a new instance of SRTFontMetrics.
+     * 
+     * @param name the font name, e.g. {@link Font#SANS_SERIF}
+     * @param style the font style, e.g. {@link Font#PLAIN}
+     * @param size the font size
+     */
+    public SRTFontMetrics(String name, int style, int size) {
+        this(new Font(name, style, size));
+    }
+    
+    /**
+     * Gets the font.
+     * 
+     * @return the font
+     */
+    public Font getFont() {
+        return font;
+    }
+    
+    /**
+     * Gets the advance width of a character in pixels.
+     * 
+     * @param codePoint the Unicode code point of the character
+     * @return the advance width in pixels
+     */
+    @Override
+    public int advance(int codePoint) {
+        if (codePoint < 0 || codePoint > Character.MAX_VALUE) {
+            synchronized (metrics) {
+                return metrics.charWidth(codePoint);
+            }
+        }
+        int[] page = pages.get(codePoint >> PAGE_BITS);
+        if (page == null) {
+            page = loadPage(codePoint >> PAGE_BITS);
+        }
+        return page[codePoint & (PAGE_SIZE - 1)];
+    }
+    
+    private int[] loadPage(int index) {
+        int[] page = new int[PAGE_SIZE];
+        synchronized (metrics) {
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                page[i] = metrics.charWidth((index << PAGE_BITS) | i);
+            }
+        }
+        pages.set(index, page);
+        return page;
+    }
+    
+    /**
+     * Gets the width of a text in pixels.
+     * 
+     * @param text the text
+     * @return the width in pixels
+     */
+    public int width(CharSequence text) {
+        int width = 0;
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = Character.codePointAt(text, i);
+            width += advance(codePoint);
+            i += Character.charCount(codePoint);
+        }
+        return width;
+    }
+}
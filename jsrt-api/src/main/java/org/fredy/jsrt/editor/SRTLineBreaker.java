@@ -0,0 +1,301 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.editor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.fredy.jsrt.api.SRTText;
+
+/**
+ * This class breaks subtitle text into lines that fit a width.
+ * 
+ * The line breaks are optimal: the text is broken into as few lines as
+ * possible, and among those the breaks minimize the sum of the squared
+ * unused widths of all lines, including the last one. This produces lines
+ * of similar lengths, e.g. two balanced lines instead of a full line and a
+ * short one. Words are separated by whitespace and are never broken, so a
+ * word longer than the width gets a line of its own. Tags such as
+ * &lt;i&gt; or {\an8} have no width and are never broken, even if they
+ * contain spaces.
+ * 
+ * The width is either the number of characters or, with
+ * {@link SRTFontMetrics}, the rendered width in pixels.
+ * 
+ * The results are cached, and the work is done in per-thread buffers that
+ * are reused, so this class is safe to use from multiple threads.
+ * 
+ * @author fredy
+ */
+public final class SRTLineBreaker {
+    private static final int MAX_CACHE_SIZE = 4096;
+    private static final ConcurrentHashMap<Key, SRTText> CACHE = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+    
+    private static final Measure CHARACTERS = codePoint -> 1;
+    
+    private SRTLineBreaker() {
+    }
+    
+    /**
+     * The width of a code point in the unit of the line width.
+     */
+    interface Measure {
+        int advance(int codePoint);
+    }
+    
+    private static final class Key {
+        private final SRTText text;
+        private final int width;
+        private final Measure measure;
+        private final int hashCode;
+        
+        Key(SRTText text, int width, Measure measure) {
+            this.text = text;
+            this.width = width;
+            this.measure = measure;
+            hashCode = 31 * (31 * text.hashCode() + width) + measure.hashCode();
+        }
+        
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return width == other.width && measure == other.measure
+                && text.equals(other.text);
+        }
+    }
+    
+    // the working storage for one line breaking, grown when needed
+    private static final class Buffers {
+        // the text with the words separated by single spaces
+        char[] chars = new char[256];
+        int[] wordStarts = new int[64];
+        int[] wordEnds = new int[64];
+        int[] wordWidths = new int[64];
+        int[] lineCounts = new int[65];
+        long[] costs = new long[65];
+        int[] breaks = new int[65];
+        
+        void ensureChars(int length) {
+            if (chars.length < length) {
+                chars = new char[Math.max(length, chars.length * 2)];
+            }
+        }
+        
+        void ensureWords(int count) {
+            if (wordStarts.length < count) {
+                int length = Math.max(count, wordStarts.length * 2);
+                wordStarts = Arrays.copyOf(wordStarts, length);
+                wordEnds = Arrays.copyOf(wordEnds, length);
+                wordWidths = Arrays.copyOf(wordWidths, length);
+                lineCounts = new int[length + 1];
+                costs = new long[length + 1];
+                breaks = new int[length + 1];
+            }
+        }
+    }
+    
+    /**
+     * Breaks the text lines into lines that fit the width. If the whole text
+     * fits the width on one line, the original lines are kept.
+     * 
+     * @param lines the text lines
+     * @param width the width (number of characters per subtitle line)
+     * @return the new text lines
+     * @throws SRTEditorException if the width is not positive
+     */
+    public static SRTText breakLines(List<String> lines, int width) {
+        return breakLines(lines, width, CHARACTERS);
+    }
+    
+    /**
+     * Breaks the text lines into lines whose rendered width with the font
+     * fits the width in pixels. If the whole text fits the width on one line,
+     * the original lines are kept.
+     * 
+     * @param lines the text lines
+     * @param width the width in pixels
+     * @param metrics the font metrics
+     * @return the new text lines
+     * @throws SRTEditorException if the width is not positive
+     */
+    public static SRTText breakLines(List<String> lines, int width, SRTFontMetrics metrics) {
+        return breakLines(lines, width, (Measure) metrics);
+    }
+    
+    private static SRTText breakLines(List<String> lines, int width, Measure measure) {
+        if (width <= 0) {
+            throw new SRTEditorException("Invalid width: " + width);
+        }
+        SRTText text = SRTText.of(lines);
+        Key key = new Key(text, width, measure);
+        SRTText result = CACHE.get(key);
+        if (result == null) {
+            result = compute(text, width, measure, BUFFERS.get());
+            if (CACHE.size() >= MAX_CACHE_SIZE) {
+                CACHE.clear();
+            }
+            CACHE.put(key, result);
+        } else if (result != text && result.equals(text)) {
+            // the cached text may belong to another subtitle with the same
+            // text; keep the original so unchanged subtitles stay the same
+            return text;
+        }
+        return result;
+    }
+    
+    private static SRTText compute(SRTText text, int width, Measure measure,
+        Buffers buffers) {
+        int nWords = split(text, measure, buffers);
+        int[] wordStarts = buffers.wordStarts;
+        int[] wordEnds = buffers.wordEnds;
+        int[] wordWidths = buffers.wordWidths;
+        int spaceWidth = measure.advance(' ');
+        
+        long totalWidth = (nWords - 1L) * spaceWidth;
+        for (int i = 0; i < nWords; i++) {
+            totalWidth += wordWidths[i];
+        }
+        if (totalWidth <= width) {
+            return text;
+        }
+        
+        // lineCounts[i] and costs[i] are the minimum number of lines and the
+        // minimum cost of breaking the words from i, breaks[i] is the first
+        // word of the next line
+        int[] lineCounts = buffers.lineCounts;
+        long[] costs = buffers.costs;
+        int[] breaks = buffers.breaks;
+        lineCounts[nWords] = 0;
+        costs[nWords] = 0;
+        for (int i = nWords - 1; i >= 0; i--) {
+            int bestLineCount = Integer.MAX_VALUE;
+            long bestCost = Long.MAX_VALUE;
+            long lineWidth = -spaceWidth;
+            for (int j = i; j < nWords; j++) {
+                lineWidth += spaceWidth + wordWidths[j];
+                if (lineWidth > width && j > i) {
+                    break;
+                }
+                long slack = Math.max(0, width - lineWidth);
+                int lineCount = 1 + lineCounts[j + 1];
+                long cost = slack * slack + costs[j + 1];
+                // prefer longer lines first on ties
+                if (lineCount < bestLineCount
+                    || (lineCount == bestLineCount && cost <= bestCost)) {
+                    bestLineCount = lineCount;
+                    bestCost = cost;
+                    breaks[i] = j + 1;
+                }
+            }
+            lineCounts[i] = bestLineCount;
+            costs[i] = bestCost;
+        }
+        
+        List<String> newLines = new ArrayList<>(lineCounts[0]);
+        for (int i = 0; i < nWords; i = breaks[i]) {
+            int start = wordStarts[i];
+            newLines.add(new String(buffers.chars, start, wordEnds[breaks[i] - 1] - start));
+        }
+        // the text may already be broken this way
+        return newLines.equals(text) ? text : SRTText.of(newLines);
+    }
+    
+    /**
+     * Copies the words of the text into the buffers separated by single
+     * spaces and returns the number of words.
+     */
+    private static int split(SRTText text, Measure measure, Buffers buffers) {
+        int length = 0;
+        for (String line : text) {
+            length += line.length() + 1;
+        }
+        buffers.ensureChars(length);
+        char[] chars = buffers.chars;
+        int nChars = 0;
+        int nWords = 0;
+        boolean inWord = false;
+        for (String line : text) {
+            int lineLength = line.length();
+            for (int i = 0; i < lineLength; i++) {
+                char c = line.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    inWord = false;
+                    continue;
+                }
+                if (!inWord) {
+                    buffers.ensureWords(nWords + 1);
+                    if (nWords > 0) {
+                        buffers.wordEnds[nWords - 1] = nChars;
+                        chars[nChars++] = ' ';
+                    }
+                    buffers.wordStarts[nWords] = nChars;
+                    buffers.wordWidths[nWords] = 0;
+                    nWords++;
+                    inWord = true;
+                }
+                int tagEnd = tagEnd(line, i);
+                if (tagEnd > i) {
+                    // copy the tag as a whole without width
+                    line.getChars(i, tagEnd + 1, chars, nChars);
+                    nChars += tagEnd + 1 - i;
+                    i = tagEnd;
+                } else {
+                    int codePoint = line.codePointAt(i);
+                    int charCount = Character.charCount(codePoint);
+                    line.getChars(i, i + charCount, chars, nChars);
+                    nChars += charCount;
+                    i += charCount - 1;
+                    buffers.wordWidths[nWords - 1] += measure.advance(codePoint);
+                }
+            }
+            // the lines are joined with a space
+            inWord = false;
+        }
+        if (nWords > 0) {
+            buffers.wordEnds[nWords - 1] = nChars;
+        }
+        return nWords;
+    }
+    
+    // the index of the end of the tag that starts at the index or -1
+    private static int tagEnd(String line, int index) {
+        char c = line.charAt(index);
+        if (c == '<') {
+            return line.indexOf('>', index + 1);
+        } else if (c == '{') {
+            return line.indexOf('}', index + 1);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,229 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.editor;
+
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+import org.fredy.jsrt.api.SRTInfo;
+
+/**
+ * This class maps subtitle times to new times to fix timing drifts.
+ * 
+ * A linear map computes a * t + b, which handles frame rate conversions
+ * and constant offsets. A piecewise-linear map is defined by anchor pairs
+ * that map a source time to a target time and interpolates linearly between
+ * the anchors, which handles gradual drifts. Two anchors are enough to sync
+ * a whole file from two known cues. Outside the anchors, the first and the
+ * last segments are extended. The results are rounded to milliseconds with
+ * the rounding mode, which is {@link RoundingMode#HALF_UP} by default.
+ * 
+ * SRTRetimer objects are immutable.
+ * 
+ * @author fredy
+ */
+public final class SRTRetimer {
+    private final double a;
+    private final double b;
+    // the anchors of a piecewise-linear map or null for a linear map
+    private final long[] sourceTimes;
+    private final long[] targetTimes;
+    private final RoundingMode roundingMode;
+    
+    private SRTRetimer(double a, double b, long[] sourceTimes, long[] targetTimes,
+        RoundingMode roundingMode) {
+        this.a = a;
+        this.b = b;
+        this.sourceTimes = sourceTimes;
+        this.targetTimes = targetTimes;
+        this.roundingMode = roundingMode;
+    }
+    
+    /**
+     * Creates a linear map t' = a * t + b.
+     * 
+     * @param a the scale
+     * @param b the offset in milliseconds
+     * @return the SRTRetimer object
+     * @throws SRTEditorException if a or b is not finite
+     */
+    public static SRTRetimer linear(double a, double b) {
+        if (Double.isNaN(a) || Double.isInfinite(a) || Double.isNaN(b) || Double.isInfinite(b)) {
+            throw new SRTEditorException("Invalid linear map: " + a + " * t + " + b);
+        }
+        return new SRTRetimer(a, b, null, null, RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Creates a linear map that converts the times of subtitles for a video
+     * with the source frame rate to a video with the target frame rate,
+     * e.g. from 23.976 fps to 25 fps.
+     * 
+     * @param sourceFrameRate the source frame rate
+     * @param targetFrameRate the target frame rate
+     * @return the SRTRetimer object
+     * @throws SRTEditorException if a frame rate is not positive
+     */
+    public static SRTRetimer frameRate(double sourceFrameRate, double targetFrameRate) {
+        if (!(sourceFrameRate > 0) || !(targetFrameRate > 0)) {
+            throw new SRTEditorException("Invalid frame rates: " + sourceFrameRate
+                + ", " + targetFrameRate);
+        }
+        return linear(sourceFrameRate / targetFrameRate, 0);
+    }
+    
+    /**
+     * Creates a piecewise-linear map from anchor pairs. The source time
+     * sourceTimes[i] is mapped to the target time targetTimes[i].
+     * 
+     * @param sourceTimes the source times in milliseconds in strictly
+     *        increasing order
+     * @param targetTimes the target times in milliseconds
+     * @return the SRTRetimer object
+     * @throws SRTEditorException if there are fewer than two anchors, the
+     *         numbers of source and target times differ or the source times
+     *         are not strictly increasing
+     */
+    public static SRTRetimer anchors(long[] sourceTimes, long[] targetTimes) {
+        if (sourceTimes.length != targetTimes.length) {
+            throw new SRTEditorException("The numbers of source times and target times differ");
+        }
+        if (sourceTimes.length < 2) {
+            throw new SRTEditorException("At least two anchors are required");
+        }
+        for (int i = 1; i < sourceTimes.length; i++) {
+            if (sourceTimes[i] <= sourceTimes[i - 1]) {
+                throw new SRTEditorException("The source times must be strictly increasing");
+            }
+        }
+        return new SRTRetimer(0, 0, sourceTimes.clone(), targetTimes.clone(),
+            RoundingMode.HALF_UP);
+    }
+    
+    /**
+     * Gets an SRTRetimer object with the same map and the given rounding
+     * mode.
+     * 
+     * @param roundingMode the rounding mode
+     * @return the SRTRetimer object
+     */
+    public SRTRetimer withRoundingMode(RoundingMode roundingMode) {
+        return new SRTRetimer(a, b, sourceTimes, targetTimes, roundingMode);
+    }
+    
+    /**
+     * Maps a time.
+     * 
+     * @param time the time in milliseconds
+     * @return the new time in milliseconds
+     * @throws ArithmeticException if the rounding mode is
+     *         {@link RoundingMode#UNNECESSARY} and rounding is necessary
+     */
+    public long apply(long time) {
+        if (sourceTimes == null) {
+            return round(a * time + b);
+        }
+        int i = Arrays.binarySearch(sourceTimes, time);
+        if (i >= 0) {
+            return targetTimes[i];
+        }
+        // use the segment that contains the time or the nearest one
+        i = Math.max(0, Math.min(-i - 2, sourceTimes.length - 2));
+        long dx = sourceTimes[i + 1] - sourceTimes[i];
+        long dy = targetTimes[i + 1] - targetTimes[i];
+        return divide(targetTimes[i] * dx + (time - sourceTimes[i]) * dy, dx);
+    }
+    
+    /**
+     * Maps the times in place.
+     * 
+     * @param times the times in milliseconds
+     */
+    public void apply(long[] times) {
+        for (int i = 0; i < times.length; i++) {
+            times[i] = apply(times[i]);
+        }
+    }
+    
+    /**
+     * Maps the start times and end times of all subtitles in the SRTInfo
+     * object.
+     * 
+     * @param info the SRTInfo object
+     */
+    public void retime(SRTInfo info) {
+        info.replaceAll(srt -> srt.withTimes(apply(srt.startTime), apply(srt.endTime)));
+    }
+    
+    private long round(double value) {
+        double floor = Math.floor(value);
+        double fraction = value - floor;
+        if (fraction == 0) {
+            return (long) floor;
+        }
+        boolean roundUp = roundUp(Double.compare(fraction, 0.5), value > 0,
+            ((long) floor & 1) == 0);
+        return (long) floor + (roundUp ? 1 : 0);
+    }
+    
+    // the rounded quotient of numerator / denominator where denominator > 0
+    private long divide(long numerator, long denominator) {
+        long floor = Math.floorDiv(numerator, denominator);
+        long remainder = Math.floorMod(numerator, denominator);
+        if (remainder == 0) {
+            return floor;
+        }
+        // compare remainder / denominator with 1/2 exactly
+        int half = Long.compare(remainder, denominator - remainder);
+        boolean roundUp = roundUp(half, numerator > 0, (floor & 1) == 0);
+        return floor + (roundUp ? 1 : 0);
+    }
+    
+    /**
+     * Decides if a value with a non-zero fraction is rounded to floor + 1.
+     * 
+     * @param half the comparison of the fraction with 1/2
+     * @param positive if the value is positive
+     * @param evenFloor if the floor of the value is even
+     */
+    private boolean roundUp(int half, boolean positive, boolean evenFloor) {
+        switch (roundingMode) {
+        case UP:
+            return positive;
+        case DOWN:
+            return !positive;
+        case CEILING:
+            return true;
+        case FLOOR:
+            return false;
+        case HALF_UP:
+            return (half != 0) ? half > 0 : positive;
+        case HALF_DOWN:
+            return (half != 0) ? half > 0 : !positive;
+        case HALF_EVEN:
+            return (half != 0) ? half > 0 : !evenFloor;
+        default:
+            throw new ArithmeticException("Rounding necessary");
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.editor;
+
+import java.util.Iterator;
+
+import org.fredy.jsrt.api.SRT;
+import org.fredy.jsrt.api.SRTInfo;
+import org.fredy.jsrt.api.SRTTimeFormat;
+
+/**
+ * This class is a view over an SRTInfo object that shifts and scales the
+ * times of all subtitles without modifying them.
+ * 
+ * Changing the offset or the scale takes constant time. The new times are
+ * computed when the SRT objects are read from the view, e.g. when iterating
+ * it or writing it with {@link org.fredy.jsrt.api.SRTWriter#write(java.io.File, Iterable)}.
+ * A time t in the SRTInfo object appears as round(t * scale) + offset in
+ * the view. The view reflects later changes of the SRTInfo object. Call
+ * {@link #commit()} to apply the times to the SRTInfo object.
+ * 
+ * @author fredy
+ */
+public class SRTTimeShiftView implements Iterable<SRT> {
+    private final SRTInfo info;
+    private long offset;
+    private double scale = 1.0;
+    
+    /**
+     * Creates a new instance of SRTTimeShiftView with no offset and a scale
+     * of 1.
+     * 
+     * @param info the SRTInfo object
+     */
+    public SRTTimeShiftView(SRTInfo info) {
+        this.info = info;
+    }
+    
+    /**
+     * Gets the offset in milliseconds.
+     * 
+     * @return the offset in milliseconds
+     */
+    public long getOffset() {
+        return offset;
+    }
+    
+    /**
+     * Sets the offset in milliseconds.
+     * 
+     * @param offset the offset in milliseconds
+     */
+    public void setOffset(long offset) {
+        this.offset = offset;
+    }
+    
+    /**
+     * Adds a time value to the offset. This is the lazy equivalent of
+     * {@link SRTEditor#updateTimes(SRTInfo, SRTTimeFormat.Type, int)}.
+     * 
+     * @param type the subtitle time format type
+     * @param value the time value
+     */
+    public void shift(SRTTimeFormat.Type type, int value) {
+        offset += SRTEditor.toMillis(type, value);
+    }
+    
+    /**
+     * Gets the scale.
+     * 
+     * @return the scale
+     */
+    public double getScale() {
+        return scale;
+    }
+    
+    /**
+     * Sets the scale, e.g. 23.976 / 25.0 to convert the times of subtitles
+     * for 23.976 fps video to 25 fps video like
+     * {@link SRTRetimer#frameRate(double, double)} does.
+     * 
+     * @param scale the scale
+     * @throws SRTEditorException if the scale is not positive
+     */
+    public void setScale(double scale) {
+        if (!(scale > 0 && !Double.isInfinite(scale))) {
+            throw new SRTEditorException("Invalid scale: " + scale);
+        }
+        this.scale = scale;
+    }
+    
+    /**
+     * Converts a time in the SRTInfo object to the time in this view.
+     * 
+     * @param time the time in milliseconds
+     * @return the time in this view in milliseconds
+     */
+    public long apply(long time) {
+        if (scale != 1.0) {
+            time = Math.round(time * scale);
+        }
+        return time + offset;
+    }
+    
+    private SRT apply(SRT srt) {
+        return srt.withTimes(apply(srt.startTime), apply(srt.endTime));
+    }
+    
+    /**
+     * Gets the SRT object with the times of this view.
+     * 
+     * @see SRTInfo#get(int)
+     * @param number the subtitle number
+     * @return the SRT object
+     */
+    public SRT get(int number) {
+        return apply(info.get(number));
+    }
+    
+    /**
+     * Gets the number of SRT objects.
+     * 
+     * @return the number of SRT objects
+     */
+    public int size() {
+        return info.size();
+    }
+    
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<SRT> iterator() {
+        final Iterator<SRT> iter = info.iterator();
+        return new Iterator<SRT>() {
+            @Override
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+            
+            @Override
+            public SRT next() {
+                return apply(iter.next());
+            }
+        };
+    }
+    
+    /**
+     * Applies the times of this view to the SRTInfo object and resets the
+     * offset to 0 and the scale to 1.
+     */
+    public void commit() {
+        if (offset != 0 || scale != 1.0) {
+            info.setAll(new SRTInfo.Builder().addAll(this).build());
+        }
+        offset = 0;
+        scale = 1.0;
+    }
+}
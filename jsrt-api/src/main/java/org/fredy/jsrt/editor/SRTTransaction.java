@@ -0,0 +1,324 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.editor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.fredy.jsrt.api.SRT;
+import org.fredy.jsrt.api.SRTInfo;
+import org.fredy.jsrt.api.SRTTimeFormat;
+
+/**
+ * This class collects editing operations for an SRTInfo object and applies
+ * them all at once.
+ * 
+ * The operations are applied in the order they were added when the
+ * transaction is committed, so the subtitle numbers refer to the numbering
+ * after the previous operations. The operations are applied to a copy of
+ * the SRTInfo object, which replaces the content of the SRTInfo object only
+ * when all operations succeed. If any operation fails, the SRTInfo object
+ * is left unchanged. See {@link SRTInfo#apply(Consumer)}, which also applies
+ * the operations again if another thread modifies a ConcurrentSRTInfo object
+ * during the commit.
+ * 
+ * @author fredy
+ */
+public class SRTTransaction {
+    private final SRTInfo info;
+    private final List<Consumer<SRTInfo>> operations = new ArrayList<>();
+    
+    /**
+     * Creates a new instance of SRTTransaction.
+     * 
+     * @param info the SRTInfo object to be edited
+     */
+    public SRTTransaction(SRTInfo info) {
+        this.info = info;
+    }
+    
+    /**
+     * Adds an operation to update the time of a subtitle.
+     * 
+     * @see SRTEditor#updateTime(SRTInfo, int, SRTTimeFormat.Type, int)
+     * @param subtitleNumber the subtitle number
+     * @param type the subtitle time format type
+     * @param value the time value
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction updateTime(int subtitleNumber, SRTTimeFormat.Type type,
+        int value) {
+        operations.add(srtInfo -> SRTEditor.updateTime(srtInfo, subtitleNumber, type, value));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to update the times of all subtitles.
+     * 
+     * @see SRTEditor#updateTimes(SRTInfo, SRTTimeFormat.Type, int)
+     * @param type the subtitle time format type
+     * @param value the time value
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction updateTimes(SRTTimeFormat.Type type, int value) {
+        operations.add(srtInfo -> SRTEditor.updateTimes(srtInfo, type, value));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to update the times of the subtitles in a range.
+     * 
+     * @see SRTEditor#updateTimes(SRTInfo, int, int, SRTTimeFormat.Type, int)
+     * @param fromNumber the first subtitle number
+     * @param toNumber the last subtitle number
+     * @param type the subtitle time format type
+     * @param value the time value
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction updateTimes(int fromNumber, int toNumber,
+        SRTTimeFormat.Type type, int value) {
+        operations.add(srtInfo -> SRTEditor.updateTimes(srtInfo, fromNumber, toNumber,
+            type, value));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to update the times of the subtitles in a time window.
+     * 
+     * @see SRTEditor#updateTimes(SRTInfo, String, String, SRTTimeFormat.Type, int)
+     * @param startTime the start time of the time window
+     * @param endTime the end time of the time window
+     * @param type the subtitle time format type
+     * @param value the time value
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction updateTimes(String startTime, String endTime,
+        SRTTimeFormat.Type type, int value) {
+        operations.add(srtInfo -> SRTEditor.updateTimes(srtInfo, startTime, endTime,
+            type, value));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to break the text of a subtitle.
+     * 
+     * @see SRTEditor#updateText(SRTInfo, int, int)
+     * @param subtitleNumber the subtitle number
+     * @param width the maximum number of characters per line
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction updateText(int subtitleNumber, int width) {
+        operations.add(srtInfo -> SRTEditor.updateText(srtInfo, subtitleNumber, width));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to break the texts of all subtitles.
+     * 
+     * @see SRTEditor#updateTexts(SRTInfo, int)
+     * @param width the maximum number of characters per line
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction updateTexts(int width) {
+        operations.add(srtInfo -> SRTEditor.updateTexts(srtInfo, width));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to break the texts of the subtitles in a range.
+     * 
+     * @see SRTEditor#updateTexts(SRTInfo, int, int, int)
+     * @param fromNumber the first subtitle number
+     * @param toNumber the last subtitle number
+     * @param width the maximum number of characters per line
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction updateTexts(int fromNumber, int toNumber, int width) {
+        operations.add(srtInfo -> SRTEditor.updateTexts(srtInfo, fromNumber, toNumber, width));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to break the texts of the subtitles in a time window.
+     * 
+     * @see SRTEditor#updateTexts(SRTInfo, String, String, int)
+     * @param startTime the start time of the time window
+     * @param endTime the end time of the time window
+     * @param width the maximum number of characters per line
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction updateTexts(String startTime, String endTime, int width) {
+        operations.add(srtInfo -> SRTEditor.updateTexts(srtInfo, startTime, endTime, width));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to append a subtitle.
+     * 
+     * @see SRTEditor#appendSubtitle(SRTInfo, String, String, List)
+     * @param startTime the start time
+     * @param endTime the end time
+     * @param text the subtitle text
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction appendSubtitle(String startTime, String endTime,
+        List<String> text) {
+        operations.add(srtInfo -> SRTEditor.appendSubtitle(srtInfo, startTime, endTime, text));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to prepend a subtitle.
+     * 
+     * @see SRTEditor#prependSubtitle(SRTInfo, String, String, List)
+     * @param startTime the start time
+     * @param endTime the end time
+     * @param text the subtitle text
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction prependSubtitle(String startTime, String endTime,
+        List<String> text) {
+        operations.add(srtInfo -> SRTEditor.prependSubtitle(srtInfo, startTime, endTime, text));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to insert a subtitle.
+     * 
+     * @see SRTEditor#insertSubtitle(SRTInfo, int, String, String, List)
+     * @param subtitleNumber the subtitle number
+     * @param startTime the start time
+     * @param endTime the end time
+     * @param text the subtitle text
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction insertSubtitle(int subtitleNumber, String startTime,
+        String endTime, List<String> text) {
+        operations.add(srtInfo -> SRTEditor.insertSubtitle(srtInfo, subtitleNumber,
+            startTime, endTime, text));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to insert a subtitle.
+     * 
+     * @see SRTEditor#insertSubtitle(SRTInfo, SRT)
+     * @param newSRT the new SRT object to be inserted
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction insertSubtitle(SRT newSRT) {
+        operations.add(srtInfo -> SRTEditor.insertSubtitle(srtInfo, newSRT));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to remove a subtitle.
+     * 
+     * @see SRTEditor#removeSubtitle(SRTInfo, int)
+     * @param subtitleNumber the subtitle number
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction removeSubtitle(int subtitleNumber) {
+        operations.add(srtInfo -> SRTEditor.removeSubtitle(srtInfo, subtitleNumber));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to remove the subtitles in a range.
+     * 
+     * @see SRTEditor#removeSubtitles(SRTInfo, int, int)
+     * @param fromNumber the first subtitle number
+     * @param toNumber the last subtitle number
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction removeSubtitles(int fromNumber, int toNumber) {
+        operations.add(srtInfo -> SRTEditor.removeSubtitles(srtInfo, fromNumber, toNumber));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to remove the subtitles in a time window.
+     * 
+     * @see SRTEditor#removeSubtitles(SRTInfo, String, String)
+     * @param startTime the start time of the time window
+     * @param endTime the end time of the time window
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction removeSubtitles(String startTime, String endTime) {
+        operations.add(srtInfo -> SRTEditor.removeSubtitles(srtInfo, startTime, endTime));
+        return this;
+    }
+    
+    /**
+     * Adds an operation to update a subtitle.
+     * 
+     * @see SRTEditor#updateSubtitle(SRTInfo, SRT)
+     * @param srt the SRT object
+     * @return this SRTTransaction object
+     */
+    public SRTTransaction updateSubtitle(SRT srt) {
+        operations.add(srtInfo -> SRTEditor.updateSubtitle(srtInfo, srt));
+        return this;
+    }
+    
+    /**
+     * Gets the number of operations that have not been committed.
+     * 
+     * @return the number of operations
+     */
+    public int size() {
+        return operations.size();
+    }
+    
+    /**
+     * Applies all operations to the SRTInfo object. The operations are
+     * cleared whether the commit succeeds or not.
+     * 
+     * @throws SRTEditorException if any operation fails, in which case the
+     *         SRTInfo object is left unchanged
+     */
+    public void commit() throws SRTEditorException {
+        List<Consumer<SRTInfo>> ops = new ArrayList<>(operations);
+        operations.clear();
+        try {
+            // copying an SRTInfo object is a constant time operation
+            info.apply(copy -> {
+                for (Consumer<SRTInfo> operation : ops) {
+                    operation.accept(copy);
+                }
+            });
+        } catch (SRTEditorException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new SRTEditorException(e);
+        }
+    }
+    
+    /**
+     * Discards all operations that have not been committed.
+     */
+    public void rollback() {
+        operations.clear();
+    }
+}
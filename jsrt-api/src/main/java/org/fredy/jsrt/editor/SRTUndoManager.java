@@ -0,0 +1,566 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.editor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+import org.fredy.jsrt.api.SRT;
+import org.fredy.jsrt.api.SRTInfo;
+import org.fredy.jsrt.api.SRTTimeFormat;
+
+/**
+ * This class performs the editing operations of {@link SRTEditor} on an
+ * SRTInfo object and keeps an undo/redo history of them.
+ * 
+ * Each operation is recorded as a delta that knows how to revert and how to
+ * reapply it, instead of a copy of the SRTInfo object. Time updates are
+ * recorded by their time value only, e.g. updating all times by 2 seconds is
+ * undone by updating them by -2 seconds. Text updates and the retimer only
+ * record the SRT objects whose times or text they changed, and nothing if
+ * they changed none. Removals record the removed SRT objects. So undoing and
+ * redoing an operation costs about as much as the operation itself, and the
+ * memory used depends on the size of the deltas, not on the size of the
+ * SRTInfo object.
+ * 
+ * The SRTInfo object must only be changed through this class while it has a
+ * history.
+ * 
+ * @author fredy
+ */
+public class SRTUndoManager {
+    /**
+     * The default maximum number of operations that can be undone.
+     */
+    public static final int DEFAULT_LIMIT = 1000;
+    
+    private static class Edit {
+        private final Consumer<SRTInfo> undo;
+        private final Consumer<SRTInfo> redo;
+        
+        public Edit(Consumer<SRTInfo> undo, Consumer<SRTInfo> redo) {
+            this.undo = undo;
+            this.redo = redo;
+        }
+    }
+    
+    private final SRTInfo info;
+    private final int limit;
+    private final Deque<Edit> undoEdits = new ArrayDeque<>();
+    private final Deque<Edit> redoEdits = new ArrayDeque<>();
+    
+    /**
+     * Creates a new instance of SRTUndoManager with the default limit.
+     * 
+     * @param info the SRTInfo object to be edited
+     */
+    public SRTUndoManager(SRTInfo info) {
+        this(info, DEFAULT_LIMIT);
+    }
+    
+    /**
+     * Creates a new instance of SRTUndoManager.
+     * 
+     * @param info the SRTInfo object to be edited
+     * @param limit the maximum number of operations that can be undone
+     */
+    public SRTUndoManager(SRTInfo info, int limit) {
+        if (limit < 1) {
+            throw new SRTEditorException("Invalid limit: " + limit);
+        }
+        this.info = info;
+        this.limit = limit;
+    }
+    
+    /**
+     * Gets the SRTInfo object being edited.
+     * 
+     * @return the SRTInfo object
+     */
+    public SRTInfo getSRTInfo() {
+        return info;
+    }
+    
+    /**
+     * Checks if there is an operation to undo.
+     * 
+     * @return true if there is an operation to undo; false otherwise
+     */
+    public boolean canUndo() {
+        return !undoEdits.isEmpty();
+    }
+    
+    /**
+     * Checks if there is an operation to redo.
+     * 
+     * @return true if there is an operation to redo; false otherwise
+     */
+    public boolean canRedo() {
+        return !redoEdits.isEmpty();
+    }
+    
+    /**
+     * Gets the number of operations that can be undone.
+     * 
+     * @return the number of operations that can be undone
+     */
+    public int getUndoCount() {
+        return undoEdits.size();
+    }
+    
+    /**
+     * Gets the number of operations that can be redone.
+     * 
+     * @return the number of operations that can be redone
+     */
+    public int getRedoCount() {
+        return redoEdits.size();
+    }
+    
+    /**
+     * Undoes the last operation.
+     * 
+     * @throws SRTEditorException if there is no operation to undo
+     */
+    public void undo() throws SRTEditorException {
+        if (undoEdits.isEmpty()) {
+            throw new SRTEditorException("There is no operation to undo");
+        }
+        Edit edit = undoEdits.pop();
+        edit.undo.accept(info);
+        redoEdits.push(edit);
+    }
+    
+    /**
+     * Redoes the last operation that was undone.
+     * 
+     * @throws SRTEditorException if there is no operation to redo
+     */
+    public void redo() throws SRTEditorException {
+        if (redoEdits.isEmpty()) {
+            throw new SRTEditorException("There is no operation to redo");
+        }
+        Edit edit = redoEdits.pop();
+        edit.redo.accept(info);
+        undoEdits.push(edit);
+    }
+    
+    /**
+     * Removes all the operations from the history.
+     */
+    public void clear() {
+        undoEdits.clear();
+        redoEdits.clear();
+    }
+    
+    /**
+     * Updates the time of a subtitle.
+     * 
+     * @see SRTEditor#updateTime(SRTInfo, int, SRTTimeFormat.Type, int)
+     * @param subtitleNumber the subtitle number
+     * @param type the subtitle time format type
+     * @param value the time value
+     */
+    public void updateTime(int subtitleNumber, SRTTimeFormat.Type type, int value) {
+        SRTEditor.updateTime(info, subtitleNumber, type, value);
+        long millis = SRTEditor.toMillis(type, value);
+        record(srtInfo -> shift(srtInfo, subtitleNumber, subtitleNumber, -millis),
+            srtInfo -> shift(srtInfo, subtitleNumber, subtitleNumber, millis));
+    }
+    
+    /**
+     * Updates the times of all subtitles.
+     * 
+     * @see SRTEditor#updateTimes(SRTInfo, SRTTimeFormat.Type, int)
+     * @param type the subtitle time format type
+     * @param value the time value
+     */
+    public void updateTimes(SRTTimeFormat.Type type, int value) {
+        SRTEditor.updateTimes(info, type, value);
+        long millis = SRTEditor.toMillis(type, value);
+        record(srtInfo -> shift(srtInfo, Integer.MIN_VALUE, Integer.MAX_VALUE, -millis),
+            srtInfo -> shift(srtInfo, Integer.MIN_VALUE, Integer.MAX_VALUE, millis));
+    }
+    
+    /**
+     * Updates the times of the subtitles in a range.
+     * 
+     * @see SRTEditor#updateTimes(SRTInfo, int, int, SRTTimeFormat.Type, int)
+     * @param fromNumber the first subtitle number
+     * @param toNumber the last subtitle number
+     * @param type the subtitle time format type
+     * @param value the time value
+     */
+    public void updateTimes(int fromNumber, int toNumber, SRTTimeFormat.Type type, int value) {
+        SRTEditor.updateTimes(info, fromNumber, toNumber, type, value);
+        long millis = SRTEditor.toMillis(type, value);
+        record(srtInfo -> shift(srtInfo, fromNumber, toNumber, -millis),
+            srtInfo -> shift(srtInfo, fromNumber, toNumber, millis));
+    }
+    
+    /**
+     * Updates the times of the subtitles in a time window. The subtitle
+     * numbers of the updated subtitles are recorded, because the subtitles
+     * may no longer start in the time window afterwards.
+     * 
+     * @see SRTEditor#updateTimes(SRTInfo, String, String, SRTTimeFormat.Type, int)
+     * @param startTime the start time of the time window
+     * @param endTime the end time of the time window
+     * @param type the subtitle time format type
+     * @param value the time value
+     */
+    public void updateTimes(String startTime, String endTime, SRTTimeFormat.Type type,
+        int value) {
+        List<SRT> srts = SRTEditor.getStarting(info, startTime, endTime);
+        int[] numbers = new int[srts.size()];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = srts.get(i).number;
+        }
+        SRTEditor.updateTimes(info, startTime, endTime, type, value);
+        long millis = SRTEditor.toMillis(type, value);
+        record(srtInfo -> shift(srtInfo, numbers, -millis),
+            srtInfo -> shift(srtInfo, numbers, millis));
+    }
+    
+    /**
+     * Updates the times of all subtitles with the retimer.
+     * 
+     * @see SRTEditor#updateTimes(SRTInfo, SRTRetimer)
+     * @param retimer the SRTRetimer object
+     */
+    public void updateTimes(SRTRetimer retimer) {
+        recordChanges(() -> SRTEditor.updateTimes(info, retimer));
+    }
+    
+    /**
+     * Breaks the text of a subtitle.
+     * 
+     * @see SRTEditor#updateText(SRTInfo, int, int)
+     * @param subtitleNumber the subtitle number
+     * @param width the maximum number of characters per line
+     */
+    public void updateText(int subtitleNumber, int width) {
+        SRT oldSRT = info.contains(subtitleNumber) ? info.get(subtitleNumber) : null;
+        SRTEditor.updateText(info, subtitleNumber, width);
+        recordPut(subtitleNumber, oldSRT);
+    }
+    
+    /**
+     * Breaks the text of a subtitle according to the width in pixels.
+     * 
+     * @see SRTEditor#updateText(SRTInfo, int, SRTFontMetrics, int)
+     * @param subtitleNumber the subtitle number
+     * @param metrics the font metrics
+     * @param width the width in pixels
+     */
+    public void updateText(int subtitleNumber, SRTFontMetrics metrics, int width) {
+        SRT oldSRT = info.contains(subtitleNumber) ? info.get(subtitleNumber) : null;
+        SRTEditor.updateText(info, subtitleNumber, metrics, width);
+        recordPut(subtitleNumber, oldSRT);
+    }
+    
+    /**
+     * Breaks the texts of all subtitles.
+     * 
+     * @see SRTEditor#updateTexts(SRTInfo, int)
+     * @param width the maximum number of characters per line
+     */
+    public void updateTexts(int width) {
+        recordChanges(() -> SRTEditor.updateTexts(info, width));
+    }
+    
+    /**
+     * Breaks the texts of all subtitles according to the width in pixels.
+     * 
+     * @see SRTEditor#updateTexts(SRTInfo, SRTFontMetrics, int)
+     * @param metrics the font metrics
+     * @param width the width in pixels
+     */
+    public void updateTexts(SRTFontMetrics metrics, int width) {
+        recordChanges(() -> SRTEditor.updateTexts(info, metrics, width));
+    }
+    
+    /**
+     * Breaks the texts of the subtitles in a range.
+     * 
+     * @see SRTEditor#updateTexts(SRTInfo, int, int, int)
+     * @param fromNumber the first subtitle number
+     * @param toNumber the last subtitle number
+     * @param width the maximum number of characters per line
+     */
+    public void updateTexts(int fromNumber, int toNumber, int width) {
+        List<SRT> oldSRTs = getRange(info, fromNumber, toNumber);
+        SRTEditor.updateTexts(info, fromNumber, toNumber, width);
+        recordChanges(oldSRTs, getRange(info, fromNumber, toNumber).iterator());
+    }
+    
+    /**
+     * Breaks the texts of the subtitles in a time window.
+     * 
+     * @see SRTEditor#updateTexts(SRTInfo, String, String, int)
+     * @param startTime the start time of the time window
+     * @param endTime the end time of the time window
+     * @param width the maximum number of characters per line
+     */
+    public void updateTexts(String startTime, String endTime, int width) {
+        List<SRT> oldSRTs = SRTEditor.getStarting(info, startTime, endTime);
+        SRTEditor.updateTexts(info, startTime, endTime, width);
+        List<SRT> newSRTs = new ArrayList<>(oldSRTs.size());
+        for (SRT srt : oldSRTs) {
+            newSRTs.add(info.get(srt.number));
+        }
+        recordChanges(oldSRTs, newSRTs.iterator());
+    }
+    
+    /**
+     * Appends a subtitle.
+     * 
+     * @see SRTEditor#appendSubtitle(SRTInfo, String, String, List)
+     * @param startTime the start time
+     * @param endTime the end time
+     * @param text the subtitle text
+     */
+    public void appendSubtitle(String startTime, String endTime, List<String> text) {
+        int number = info.size() + 1;
+        SRT oldSRT = info.contains(number) ? info.get(number) : null;
+        SRTEditor.appendSubtitle(info, startTime, endTime, text);
+        recordPut(number, oldSRT);
+    }
+    
+    /**
+     * Prepends a subtitle.
+     * 
+     * @see SRTEditor#prependSubtitle(SRTInfo, String, String, List)
+     * @param startTime the start time
+     * @param endTime the end time
+     * @param text the subtitle text
+     */
+    public void prependSubtitle(String startTime, String endTime, List<String> text) {
+        SRTEditor.prependSubtitle(info, startTime, endTime, text);
+        recordInsert(info.get(1));
+    }
+    
+    /**
+     * Inserts a subtitle.
+     * 
+     * @see SRTEditor#insertSubtitle(SRTInfo, int, String, String, List)
+     * @param subtitleNumber the subtitle number
+     * @param startTime the start time
+     * @param endTime the end time
+     * @param text the subtitle text
+     */
+    public void insertSubtitle(int subtitleNumber, String startTime, String endTime,
+        List<String> text) {
+        SRTEditor.insertSubtitle(info, subtitleNumber, startTime, endTime, text);
+        recordInsert(info.get(subtitleNumber));
+    }
+    
+    /**
+     * Inserts a subtitle.
+     * 
+     * @see SRTEditor#insertSubtitle(SRTInfo, SRT)
+     * @param newSRT the new SRT
+     */
+    public void insertSubtitle(SRT newSRT) {
+        SRTEditor.insertSubtitle(info, newSRT);
+        recordInsert(newSRT);
+    }
+    
+    /**
+     * Removes a subtitle.
+     * 
+     * @see SRTEditor#removeSubtitle(SRTInfo, int)
+     * @param subtitleNumber the subtitle number
+     */
+    public void removeSubtitle(int subtitleNumber) {
+        SRT oldSRT = info.contains(subtitleNumber) ? info.get(subtitleNumber) : null;
+        SRTEditor.removeSubtitle(info, subtitleNumber);
+        recordDelete(oldSRT);
+    }
+    
+    /**
+     * Removes the subtitles in a range.
+     * 
+     * @see SRTEditor#removeSubtitles(SRTInfo, int, int)
+     * @param fromNumber the first subtitle number
+     * @param toNumber the last subtitle number
+     */
+    public void removeSubtitles(int fromNumber, int toNumber) {
+        List<SRT> oldSRTs = getRange(info, fromNumber, toNumber);
+        SRTEditor.removeSubtitles(info, fromNumber, toNumber);
+        recordDelete(oldSRTs.toArray(new SRT[oldSRTs.size()]));
+    }
+    
+    /**
+     * Removes the subtitles in a time window.
+     * 
+     * @see SRTEditor#removeSubtitles(SRTInfo, String, String)
+     * @param startTime the start time of the time window
+     * @param endTime the end time of the time window
+     */
+    public void removeSubtitles(String startTime, String endTime) {
+        List<SRT> oldSRTs = SRTEditor.getStarting(info, startTime, endTime);
+        SRTEditor.removeSubtitles(info, startTime, endTime);
+        oldSRTs.sort((srt1, srt2) -> Integer.compare(srt1.number, srt2.number));
+        recordDelete(oldSRTs.toArray(new SRT[oldSRTs.size()]));
+    }
+    
+    /**
+     * Updates a subtitle.
+     * 
+     * @see SRTEditor#updateSubtitle(SRTInfo, SRT)
+     * @param srt the SRT object
+     */
+    public void updateSubtitle(SRT srt) {
+        SRT oldSRT = info.contains(srt.number) ? info.get(srt.number) : null;
+        SRTEditor.updateSubtitle(info, srt);
+        recordPut(srt.number, oldSRT);
+    }
+    
+    private void record(Consumer<SRTInfo> undo, Consumer<SRTInfo> redo) {
+        redoEdits.clear();
+        undoEdits.push(new Edit(undo, redo));
+        if (undoEdits.size() > limit) {
+            undoEdits.removeLast();
+        }
+    }
+    
+    /**
+     * Records an operation that put an SRT object in place of another one or
+     * of no SRT object.
+     */
+    private void recordPut(int number, SRT oldSRT) {
+        SRT newSRT = info.get(number);
+        record(srtInfo -> {
+            if (oldSRT == null) {
+                srtInfo.remove(number);
+            } else {
+                srtInfo.add(oldSRT);
+            }
+        }, srtInfo -> srtInfo.add(newSRT));
+    }
+    
+    private void recordInsert(SRT newSRT) {
+        record(srtInfo -> srtInfo.delete(newSRT.number), srtInfo -> srtInfo.insert(newSRT));
+    }
+    
+    /**
+     * Records an operation that deleted SRT objects, which are given in
+     * subtitle number order. Inserting them in that order renumbers the other
+     * SRT objects back.
+     */
+    private void recordDelete(SRT... oldSRTs) {
+        record(srtInfo -> {
+            for (SRT srt : oldSRTs) {
+                srtInfo.insert(srt);
+            }
+        }, srtInfo -> {
+            for (int i = oldSRTs.length - 1; i >= 0; i--) {
+                srtInfo.delete(oldSRTs[i].number);
+            }
+        });
+    }
+    
+    /**
+     * Records an operation that replaces SRT objects without renumbering them.
+     * Only the SRT objects whose times or text the operation changed are
+     * recorded. The SRT objects are compared by content, because the SRTInfo
+     * object may return new but equal SRT objects, e.g. after renumbering.
+     */
+    private void recordChanges(Runnable operation) {
+        List<SRT> oldSRTs = new ArrayList<>(info.size());
+        for (SRT srt : info) {
+            oldSRTs.add(srt);
+        }
+        operation.run();
+        recordChanges(oldSRTs, info.iterator());
+    }
+    
+    private void recordChanges(List<SRT> oldSRTs, Iterator<SRT> newIter) {
+        List<SRT> changedOldSRTs = new ArrayList<>();
+        List<SRT> changedNewSRTs = new ArrayList<>();
+        for (SRT oldSRT : oldSRTs) {
+            SRT newSRT = newIter.next();
+            if (isChanged(oldSRT, newSRT)) {
+                changedOldSRTs.add(oldSRT);
+                changedNewSRTs.add(newSRT);
+            }
+        }
+        if (changedOldSRTs.isEmpty()) {
+            return;
+        }
+        SRT[] undoSRTs = changedOldSRTs.toArray(new SRT[changedOldSRTs.size()]);
+        SRT[] redoSRTs = changedNewSRTs.toArray(new SRT[changedNewSRTs.size()]);
+        record(srtInfo -> put(srtInfo, undoSRTs), srtInfo -> put(srtInfo, redoSRTs));
+    }
+    
+    private static boolean isChanged(SRT oldSRT, SRT newSRT) {
+        return newSRT != oldSRT && (newSRT.startTime != oldSRT.startTime
+            || newSRT.endTime != oldSRT.endTime || !newSRT.text.equals(oldSRT.text));
+    }
+    
+    private static void put(SRTInfo info, SRT[] srts) {
+        for (SRT srt : srts) {
+            info.add(srt);
+        }
+    }
+    
+    private static void shift(SRTInfo info, int fromNumber, int toNumber, long millis) {
+        info.replaceAll(fromNumber, toNumber,
+            srt -> srt.withTimes(srt.startTime + millis, srt.endTime + millis));
+    }
+    
+    private static void shift(SRTInfo info, int[] numbers, long millis) {
+        for (int number : numbers) {
+            SRT srt = info.get(number);
+            info.add(srt.withTimes(srt.startTime + millis, srt.endTime + millis));
+        }
+    }
+    
+    /**
+     * Gets the SRT objects with subtitle numbers between fromNumber and
+     * toNumber, both inclusive.
+     */
+    private static List<SRT> getRange(SRTInfo info, int fromNumber, int toNumber) {
+        List<SRT> srts = new ArrayList<>();
+        for (long number = fromNumber; number <= toNumber; ) {
+            SRT srt;
+            try {
+                srt = info.get((int) number);
+            } catch (NoSuchElementException e) {
+                break;
+            }
+            if (srt.number > toNumber) {
+                break;
+            }
+            srts.add(srt);
+            number = srt.number + 1L;
+        }
+        return srts;
+    }
+}
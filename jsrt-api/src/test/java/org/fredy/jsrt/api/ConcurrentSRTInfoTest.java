@@ -0,0 +1,136 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class ConcurrentSRTInfoTest {
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        final ConcurrentSRTInfo srtInfo = new ConcurrentSRTInfo();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int offset = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 1 + offset; i <= 2000; i += 4) {
+                        srtInfo.add(new SRT(i, i, i, "Foo"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        
+        assertEquals(2000, srtInfo.size());
+        int number = 1;
+        for (SRT srt : srtInfo) {
+            assertEquals(number++, srt.number);
+        }
+    }
+    
+    @Test
+    public void testConsistentIteration() throws Exception {
+        final ConcurrentSRTInfo srtInfo = new ConcurrentSRTInfo();
+        final AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                // every insertion renumbers all SRT objects
+                for (int i = 0; i < 2000; i++) {
+                    srtInfo.insert(new SRT(1, i, i, "Foo"));
+                }
+                done.set(true);
+            });
+            Future<?> reader = executor.submit(() -> {
+                while (!done.get()) {
+                    int number = 1;
+                    for (SRT srt : srtInfo) {
+                        assertEquals(number++, srt.number);
+                    }
+                }
+            });
+            writer.get();
+            reader.get();
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        
+        assertEquals(2000, srtInfo.size());
+        assertEquals(1999, srtInfo.get(1).startTime);
+        assertEquals(1, srtInfo.getNextAfter(1998).number);
+    }
+    
+    @Test
+    public void testApplyRetriesAfterConcurrentWrite() {
+        final ConcurrentSRTInfo srtInfo = new ConcurrentSRTInfo();
+        srtInfo.add(new SRT(1, 1000, 2000, "Foo"));
+        final AtomicInteger attempts = new AtomicInteger();
+        srtInfo.apply(copy -> {
+            if (attempts.incrementAndGet() == 1) {
+                // another thread writes while the operation is running
+                srtInfo.add(new SRT(2, 3000, 4000, "Bar"));
+            }
+            copy.replaceAll(srt -> srt.withTimes(srt.startTime + 500, srt.endTime + 500));
+        });
+        
+        // the operation is applied again, so the concurrent write is not lost
+        assertEquals(2, attempts.get());
+        assertEquals(2, srtInfo.size());
+        assertEquals(1500, srtInfo.get(1).startTime);
+        assertEquals(3500, srtInfo.get(2).startTime);
+    }
+    
+    @Test
+    public void testClone() {
+        ConcurrentSRTInfo srtInfo = new ConcurrentSRTInfo();
+        srtInfo.add(new SRT(1, 0, 0, "Foo"));
+        SRTInfo copy = (SRTInfo) srtInfo.clone();
+        srtInfo.add(new SRT(2, 0, 0, "Bar"));
+        
+        assertTrue(copy instanceof ConcurrentSRTInfo);
+        assertEquals(1, copy.size());
+        assertEquals(2, srtInfo.size());
+    }
+}
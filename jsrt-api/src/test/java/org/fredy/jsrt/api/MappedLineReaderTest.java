@@ -0,0 +1,75 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.StringReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class MappedLineReaderTest {
+    @Test
+    public void testReadLine() throws Exception {
+        String content = "1\r\n00:00:20,000 --> 00:00:24,400\r\nHello World\n\n\r\r" +
+            "a very long line that does not fit in a small window\r\nlast";
+        File file = File.createTempFile("jsrt", ".srt");
+        file.deleteOnExit();
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        
+        for (int windowSize = 1; windowSize <= 8; windowSize++) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                MappedLineReader reader = new MappedLineReader(channel,
+                    StandardCharsets.UTF_8, 0, channel.size(), 0, windowSize);
+                BufferedReader expected = new BufferedReader(new StringReader(content));
+                String line;
+                while ((line = expected.readLine()) != null) {
+                    assertTrue(reader.readLine());
+                    assertEquals(line, reader.toString());
+                    assertEquals(line.isEmpty(), reader.isEmpty());
+                    assertEquals(line.trim().isEmpty(), reader.isBlank());
+                }
+                assertFalse(reader.readLine());
+                assertEquals(9, reader.getLineNumber());
+            }
+        }
+    }
+    
+    @Test
+    public void testIsSupported() {
+        assertTrue(MappedLineReader.isSupported(StandardCharsets.UTF_8));
+        assertTrue(MappedLineReader.isSupported(StandardCharsets.ISO_8859_1));
+        assertTrue(MappedLineReader.isSupported(Charset.forName("windows-1252")));
+        assertFalse(MappedLineReader.isSupported(StandardCharsets.UTF_16));
+    }
+}
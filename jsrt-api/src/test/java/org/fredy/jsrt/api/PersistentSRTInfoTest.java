@@ -0,0 +1,87 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class PersistentSRTInfoTest {
+
+    @Test
+    public void testVersions() {
+        List<PersistentSRTInfo> versions = new ArrayList<>();
+        PersistentSRTInfo info = PersistentSRTInfo.empty();
+        versions.add(info);
+        for (int i = 1; i <= 100; i++) {
+            info = info.with(new SRT(i, i, i, "Foo" + i));
+            versions.add(info);
+        }
+        PersistentSRTInfo inserted = info.inserted(new SRT(1, 0, 0, "Foo0"));
+        PersistentSRTInfo deleted = inserted.deleted(51).without(100);
+        
+        for (int i = 0; i <= 100; i++) {
+            assertEquals(i, versions.get(i).size());
+        }
+        assertEquals(100, info.size());
+        assertEquals("Foo1", info.get(1).text.get(0));
+        assertEquals(101, inserted.size());
+        assertEquals("Foo0", inserted.get(1).text.get(0));
+        assertEquals("Foo100", inserted.get(101).text.get(0));
+        assertEquals(99, deleted.size());
+        assertEquals("Foo51", deleted.get(51).text.get(0));
+        assertFalse(deleted.contains(100));
+        
+        int number = 1;
+        for (SRT srt : deleted) {
+            assertEquals(number++, srt.number);
+        }
+    }
+    
+    @Test
+    public void testUnchanged() {
+        PersistentSRTInfo info = PersistentSRTInfo.empty().with(new SRT(1, 0, 0, "Foo"));
+        assertSame(info, info.without(2));
+        assertSame(info, info.deleted(2));
+    }
+    
+    @Test
+    public void testSRTInfo() {
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, 0, 0, "Foo"));
+        PersistentSRTInfo snapshot = new PersistentSRTInfo(srtInfo);
+        srtInfo.add(new SRT(2, 0, 0, "Bar"));
+        
+        assertEquals(1, snapshot.size());
+        SRTInfo copy = snapshot.toSRTInfo();
+        copy.remove(1);
+        assertEquals(1, snapshot.size());
+        assertEquals(2, srtInfo.size());
+    }
+}
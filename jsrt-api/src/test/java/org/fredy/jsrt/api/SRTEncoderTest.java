@@ -0,0 +1,108 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class SRTEncoderTest {
+    private static List<SRT> newSRTs() {
+        List<SRT> srts = new ArrayList<>();
+        srts.add(new SRT(1, 0, 1500, "Hello World", "Bye World"));
+        srts.add(new SRT(2, 3599999, 86399999, "Gr\u00fc\u00dfe \u65e5\u672c",
+            "caf\u00e9 \ud83d\ude00"));
+        srts.add(new SRT(3, 90000000, 90000001));
+        srts.add(new SRT(-42, 100, 200, "lone \ud83d surrogate", ""));
+        srts.add(new SRT(Integer.MAX_VALUE, 300, 400, "x"));
+        srts.add(new SRT(Integer.MIN_VALUE, 500, 600, "y"));
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append(i % 3 == 0 ? "\u00e4" : "a");
+        }
+        for (int i = 0; i < 300; i++) {
+            srts.add(new SRT(i + 10, i * 1000, i * 1000 + 999, sb.toString(), "line " + i));
+        }
+        return srts;
+    }
+    
+    private static byte[] writeChars(List<SRT> srts, Charset charset, String lineSeparator)
+        throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SRTWriter.write(new OutputStreamWriter(out, charset), srts.iterator(), lineSeparator);
+        return out.toByteArray();
+    }
+    
+    private static byte[] encode(List<SRT> srts, Charset charset, String lineSeparator,
+        int bufferSize) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SRTEncoder encoder = new SRTEncoder(Channels.newChannel(out), charset, lineSeparator,
+            bufferSize);
+        for (SRT srt : srts) {
+            encoder.encode(srt);
+        }
+        encoder.flush();
+        return out.toByteArray();
+    }
+    
+    @Test
+    public void testEncode() throws Exception {
+        List<SRT> srts = newSRTs();
+        Charset[] charsets = {StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1,
+            StandardCharsets.US_ASCII, Charset.forName("windows-1252")};
+        for (Charset charset : charsets) {
+            assertTrue(SRTEncoder.isSupported(charset));
+            for (String lineSeparator : new String[] {"\n", "\r\n"}) {
+                byte[] expected = writeChars(srts, charset, lineSeparator);
+                assertArrayEquals(expected, encode(srts, charset, lineSeparator, 1 << 16));
+                assertArrayEquals(expected, encode(srts, charset, lineSeparator, 7));
+            }
+        }
+    }
+    
+    @Test
+    public void testIsSupported() {
+        assertFalse(SRTEncoder.isSupported(StandardCharsets.UTF_16));
+        assertFalse(SRTEncoder.isSupported(StandardCharsets.UTF_16LE));
+    }
+    
+    @Test
+    public void testWriteUnsupportedCharset() throws Exception {
+        List<SRT> srts = newSRTs();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SRTWriter.write(Channels.newChannel(out), srts.iterator(), StandardCharsets.UTF_16,
+            "\r\n");
+        assertArrayEquals(writeChars(srts, StandardCharsets.UTF_16, "\r\n"), out.toByteArray());
+    }
+}
@@ -24,8 +24,14 @@ package org.fredy.jsrt.api;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
 
 import org.fredy.jsrt.api.SRT;
 import org.fredy.jsrt.api.SRTInfo;
@@ -142,4 +148,224 @@ public class SRTInfoTest {
        assertTrue(srtInfo.contains(1));
        assertTrue(srtInfo.contains(srt1));
    }
-}
+   
+   @Test
+   public void testGaps() {
+       SRTInfo srtInfo = new SRTInfo();
+       srtInfo.add(new SRT(40, 0, 0, "Forty"));
+       srtInfo.add(new SRT(0, 0, 0, "Zero"));
+       srtInfo.add(new SRT(-3, 0, 0, "Minus Three"));
+       srtInfo.add(new SRT(7, 0, 0, "Seven"));
+       
+       assertEquals(4, srtInfo.size());
+       assertTrue(srtInfo.contains(-3));
+       assertFalse(srtInfo.contains(1));
+       assertFalse(srtInfo.contains(41));
+       assertEquals("Seven", srtInfo.get(7).text.get(0));
+       // a missing number gets the SRT object with the next higher number
+       assertEquals(40, srtInfo.get(8).number);
+       assertEquals(-3, srtInfo.get(-100).number);
+       
+       int[] numbers = {-3, 0, 7, 40};
+       int i = 0;
+       for (SRT srt : srtInfo) {
+           assertEquals(numbers[i++], srt.number);
+       }
+       assertEquals(numbers.length, i);
+       
+       srtInfo.remove(8);
+       assertEquals(4, srtInfo.size());
+       srtInfo.remove(40);
+       assertEquals(3, srtInfo.size());
+       try {
+           srtInfo.get(8);
+           fail();
+       } catch (NoSuchElementException e) {
+       }
+   }
+   
+   @Test
+   public void testIteratorRemove() {
+       SRTInfo srtInfo = new SRTInfo();
+       for (int i = 1; i <= 5; i++) {
+           srtInfo.add(new SRT(i, 0, 0, "Foo"));
+       }
+       SRTInfo copy = new SRTInfo(srtInfo);
+       Iterator<SRT> iter = srtInfo.iterator();
+       while (iter.hasNext()) {
+           if (iter.next().number % 2 == 0) {
+               iter.remove();
+           }
+       }
+       
+       assertEquals(3, srtInfo.size());
+       assertFalse(srtInfo.contains(2));
+       assertEquals(3, srtInfo.get(2).number);
+       assertEquals(5, copy.size());
+       assertTrue(copy.contains(2));
+   }
+   
+   @Test
+   public void testTimeQueries() {
+       SRTInfo srtInfo = new SRTInfo();
+       srtInfo.add(new SRT(1, 1000, 3000, "One"));
+       srtInfo.add(new SRT(2, 2000, 2500, "Two"));
+       srtInfo.add(new SRT(3, 3000, 4000, "Three"));
+       srtInfo.add(new SRT(4, 0, 10000, "Four"));
+       
+       assertEquals(Arrays.asList(4, 1), numbers(srtInfo.getActive(1000)));
+       assertEquals(Arrays.asList(4, 1, 2), numbers(srtInfo.getActive(2000)));
+       assertEquals(Arrays.asList(4, 3), numbers(srtInfo.getActive(3000)));
+       assertEquals(Arrays.asList(), numbers(srtInfo.getActive(10000)));
+       assertEquals(Arrays.asList(4, 1), numbers(srtInfo.getOverlapping(2600, 2999)));
+       assertEquals(Arrays.asList(4, 1, 2, 3), numbers(srtInfo.getOverlapping(0, 3000)));
+       assertEquals(Arrays.asList(), numbers(srtInfo.getOverlapping(3000, 0)));
+       assertEquals(1, srtInfo.getNextAfter(0).number);
+       assertEquals(3, srtInfo.getNextAfter(2000).number);
+       assertNull(srtInfo.getNextAfter(3000));
+       
+       // the queries must reflect the modifications
+       srtInfo.add(new SRT(3, 5000, 6000, "Three"));
+       srtInfo.remove(2);
+       assertEquals(Arrays.asList(4, 1), numbers(srtInfo.getActive(2000)));
+       assertEquals(3, srtInfo.getNextAfter(2000).number);
+       assertEquals(Arrays.asList(4, 3), numbers(srtInfo.getActive(5000)));
+   }
+   
+   @Test
+   public void testTimeQueriesRandom() {
+       Random random = new Random(42);
+       SRTInfo srtInfo = new SRTInfo();
+       for (int i = 1; i <= 500; i++) {
+           long startTime = random.nextInt(100000);
+           srtInfo.add(new SRT(i, startTime, startTime + random.nextInt(5000), "Foo"));
+       }
+       for (int i = 0; i < 200; i++) {
+           long startTime = random.nextInt(110000) - 5000;
+           long endTime = startTime + random.nextInt(3000);
+           if (i % 20 == 0) {
+               // the start time queries use the tree, not a rebuilt index
+               srtInfo.insert(new SRT(i + 1, startTime, endTime, "Bar"));
+               srtInfo.delete(i / 2 + 1);
+           }
+           List<Integer> expected = new ArrayList<>();
+           List<SRT> expectedStarting = new ArrayList<>();
+           SRT next = null;
+           for (SRT srt : srtInfo) {
+               if (srt.startTime <= endTime && srt.endTime > startTime) {
+                   expected.add(srt.number);
+               }
+               if (srt.startTime >= startTime && srt.startTime <= endTime) {
+                   expectedStarting.add(srt);
+               }
+               if (srt.startTime > startTime && (next == null || srt.startTime < next.startTime)) {
+                   next = srt;
+               }
+           }
+           List<Integer> actual = numbers(srtInfo.getOverlapping(startTime, endTime));
+           Collections.sort(actual);
+           assertEquals(expected, actual);
+           assertEquals(next, srtInfo.getNextAfter(startTime));
+           expectedStarting.sort((srt1, srt2) -> (srt1.startTime != srt2.startTime) ?
+               Long.compare(srt1.startTime, srt2.startTime) :
+               Integer.compare(srt1.number, srt2.number));
+           assertEquals(numbers(expectedStarting),
+               numbers(srtInfo.getStarting(startTime, endTime)));
+       }
+   }
+   
+@Test
+   public void testInsertDelete() {
+       SRTInfo srtInfo = new SRTInfo();
+       for (int i = 1; i <= 5; i++) {
+           srtInfo.add(new SRT(i, i * 1000, i * 1000 + 500, "Foo" + i));
+       }
+       SRTInfo copy = new SRTInfo(srtInfo);
+       srtInfo.insert(new SRT(1, 0, 500, "Foo0"));
+       srtInfo.delete(4);
+       srtInfo.delete(100);
+       
+       assertEquals(5, srtInfo.size());
+       String[] texts = {"Foo0", "Foo1", "Foo2", "Foo4", "Foo5"};
+       int i = 0;
+       for (SRT srt : srtInfo) {
+           assertEquals(i + 1, srt.number);
+           assertEquals(texts[i++], srt.text.get(0));
+       }
+       assertEquals(4, srtInfo.getActive(4000).get(0).number);
+       
+       assertEquals(5, copy.size());
+       assertEquals("Foo1", copy.get(1).text.get(0));
+       assertEquals("Foo3", copy.get(3).text.get(0));
+   }
+   
+   @Test
+   public void testBuilder() {
+       SRTInfo.Builder builder = new SRTInfo.Builder();
+       for (int i = 1; i <= 1000; i++) {
+           builder.add(new SRT(i, i, i, "Foo" + i));
+       }
+       SRTInfo srtInfo = builder.build();
+       assertEquals(1000, srtInfo.size());
+       int number = 1;
+       for (SRT srt : srtInfo) {
+           assertEquals(number, srt.number);
+           assertEquals("Foo" + number++, srt.text.get(0));
+       }
+       
+       // the modifications after building work as usual
+       srtInfo.insert(new SRT(500, 0, 0, "Bar"));
+       assertEquals("Bar", srtInfo.get(500).text.get(0));
+       assertEquals("Foo1000", srtInfo.get(1001).text.get(0));
+   }
+   
+   @Test
+   public void testBuilderUnsorted() {
+       SRTInfo srtInfo = new SRTInfo.Builder()
+           .add(new SRT(3, 0, 0, "Foo3"))
+           .add(new SRT(1, 0, 0, "Foo1"))
+           .add(new SRT(3, 0, 0, "Bar3"))
+           .add(new SRT(2, 0, 0, "Foo2"))
+           .add(new SRT(1, 0, 0, "Bar1"))
+           .build();
+       
+       assertEquals(3, srtInfo.size());
+       assertEquals(Arrays.asList(1, 2, 3), numbers(srtInfo));
+       assertEquals("Bar1", srtInfo.get(1).text.get(0));
+       assertEquals("Foo2", srtInfo.get(2).text.get(0));
+       assertEquals("Bar3", srtInfo.get(3).text.get(0));
+       assertEquals(0, new SRTInfo.Builder().build().size());
+   }
+   
+   @Test
+   public void testReplaceAll() {
+       SRTInfo srtInfo = new SRTInfo();
+       for (int i = 1; i <= 10; i++) {
+           srtInfo.add(new SRT(i, i, i, "Foo" + i));
+       }
+       srtInfo.insert(new SRT(1, 0, 0, "Foo0"));
+       SRT unchanged = srtInfo.get(5);
+       srtInfo.replaceAll(srt -> (srt.number % 2 == 0) ? srt.withText("Bar" + srt.number) : srt);
+       
+       assertEquals(11, srtInfo.size());
+       assertEquals("Foo0", srtInfo.get(1).text.get(0));
+       assertEquals("Bar2", srtInfo.get(2).text.get(0));
+       assertEquals("Bar10", srtInfo.get(10).text.get(0));
+       assertEquals(unchanged.text, srtInfo.get(5).text);
+       assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11), numbers(srtInfo));
+       try {
+           srtInfo.replaceAll(srt -> srt.withNumber(srt.number + 1));
+           fail();
+       } catch (IllegalArgumentException e) {
+       }
+       assertEquals("Bar2", srtInfo.get(2).text.get(0));
+   }
+   
+      private static List<Integer> numbers(Iterable<SRT> srts) {
+       List<Integer> numbers = new ArrayList<>();
+       for (SRT srt : srts) {
+           numbers.add(srt.number);
+       }
+       return numbers;
+   }
+}
\ No newline at end of file
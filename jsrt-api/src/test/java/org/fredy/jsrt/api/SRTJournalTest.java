@@ -0,0 +1,214 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class SRTJournalTest {
+    private final File srtFile = new File("src/test/resources/test_journal.srt");
+    private final File journalFile = new File("src/test/resources/test_journal.srt.journal");
+    private final File newJournalFile = new File("src/test/resources/test_journal.srt.journal.new");
+    private final File otherFile = new File("src/test/resources/test_journal2.srt");
+    private final File writerTempFile = new File("src/test/resources/test_journal.srt.tmp");
+    
+    @Before
+    public void setUp() {
+        SRTInfo info = new SRTInfo();
+        for (int i = 1; i <= 10; i++) {
+            info.add(new SRT(i, i * 1000L, i * 1000L + 500, "Line " + i, "Second " + i));
+        }
+        SRTWriter.write(srtFile, info);
+    }
+    
+    @After
+    public void cleanUp() {
+        srtFile.delete();
+        journalFile.delete();
+        newJournalFile.delete();
+        otherFile.delete();
+        writerTempFile.delete();
+    }
+    
+    private static void assertSRTInfoEquals(SRTInfo expected, SRTInfo actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<SRT> iter = actual.iterator();
+        for (SRT srt : expected) {
+            assertEquals(srt, iter.next());
+        }
+    }
+    
+    private static void edit(SRTJournal journal, SRTInfo expected) {
+        SRT srt = new SRT(3, 3000, 3600, "Changed");
+        journal.add(srt);
+        expected.add(srt);
+        srt = new SRT(5, 4700, 4900, "Inserted \u00fc");
+        journal.insert(srt);
+        expected.insert(srt);
+        journal.delete(1);
+        expected.delete(1);
+        journal.delete(7, 8);
+        expected.delete(7, 8);
+        journal.shift(2, 4, -100);
+        expected.replaceAll(2, 4, s -> s.withTimes(s.startTime - 100, s.endTime - 100));
+        journal.shift(1000);
+        expected.replaceAll(s -> s.withTimes(s.startTime + 1000, s.endTime + 1000));
+    }
+    
+    @Test
+    public void testReplay() throws Exception {
+        byte[] original = Files.readAllBytes(srtFile.toPath());
+        SRTInfo expected = SRTReader.read(srtFile);
+        try (SRTJournal journal = SRTJournal.open(srtFile)) {
+            edit(journal, expected);
+            assertSRTInfoEquals(expected, journal.getSRTInfo());
+            assertEquals(journalFile.length(), journal.getJournalSize());
+        }
+        // the SRT file is only written by compacting
+        assertArrayEquals(original, Files.readAllBytes(srtFile.toPath()));
+        
+        // a record that was only partly written is dropped
+        long length = journalFile.length();
+        Files.write(journalFile.toPath(), new byte[] {0, 0, 0, 100, 1, 2},
+            StandardOpenOption.APPEND);
+        try (SRTJournal journal = SRTJournal.open(srtFile)) {
+            assertSRTInfoEquals(expected, journal.getSRTInfo());
+            assertEquals(length, journal.getJournalSize());
+            journal.delete(1);
+            expected.delete(1);
+        }
+        try (SRTJournal journal = SRTJournal.open(srtFile)) {
+            assertSRTInfoEquals(expected, journal.getSRTInfo());
+        }
+    }
+    
+    @Test
+    public void testCompact() throws Exception {
+        SRTInfo expected = SRTReader.read(srtFile);
+        try (SRTJournal journal = SRTJournal.open(srtFile)) {
+            long emptySize = journal.getJournalSize();
+            edit(journal, expected);
+            journal.compact();
+            assertEquals(emptySize, journal.getJournalSize());
+            assertEquals(emptySize, journalFile.length());
+            assertSRTInfoEquals(expected, SRTReader.read(srtFile));
+            SRTWriter.write(otherFile, expected);
+            assertArrayEquals(Files.readAllBytes(otherFile.toPath()),
+                Files.readAllBytes(srtFile.toPath()));
+            
+            journal.delete(2);
+            expected.delete(2);
+        }
+        try (SRTJournal journal = SRTJournal.open(srtFile)) {
+            assertSRTInfoEquals(expected, journal.getSRTInfo());
+        }
+    }
+    
+    @Test
+    public void testCompactInBackground() throws Exception {
+        SRTInfo expected = SRTReader.read(srtFile);
+        try (SRTJournal journal = SRTJournal.open(srtFile, 200)) {
+            for (int i = 0; i < 100; i++) {
+                SRT srt = new SRT(i % 10 + 1, i * 1000L, i * 1000L + 500, "Edit " + i);
+                journal.add(srt);
+                expected.add(srt);
+            }
+            assertSRTInfoEquals(expected, journal.getSRTInfo());
+        }
+        assertTrue(journalFile.length() < 1000);
+        try (SRTJournal journal = SRTJournal.open(srtFile)) {
+            assertSRTInfoEquals(expected, journal.getSRTInfo());
+        }
+    }
+    
+    @Test
+    public void testCompactKeepsWriterTempFile() throws Exception {
+        // the temporary file of a write that is running at the same time
+        Files.write(writerTempFile.toPath(), new byte[] {1, 2, 3});
+        SRTInfo expected = SRTReader.read(srtFile);
+        try (SRTJournal journal = SRTJournal.open(srtFile)) {
+            edit(journal, expected);
+            journal.compact();
+        }
+        assertArrayEquals(new byte[] {1, 2, 3}, Files.readAllBytes(writerTempFile.toPath()));
+        assertSRTInfoEquals(expected, SRTReader.read(srtFile));
+    }
+    
+    @Test
+    public void testRecoverCompaction() throws Exception {
+        SRTInfo expected = SRTReader.read(srtFile);
+        byte[] oldJournal;
+        try (SRTJournal journal = SRTJournal.open(srtFile)) {
+            oldJournal = Files.readAllBytes(journalFile.toPath());
+            edit(journal, expected);
+            journal.compact();
+            journal.delete(1);
+            expected.delete(1);
+        }
+        // a crash after the SRT file has been replaced but before the journal
+        Files.move(journalFile.toPath(), newJournalFile.toPath());
+        Files.write(journalFile.toPath(), oldJournal);
+        try (SRTJournal journal = SRTJournal.open(srtFile)) {
+            assertSRTInfoEquals(expected, journal.getSRTInfo());
+        }
+        assertFalse(newJournalFile.exists());
+        
+        // a crash before the SRT file has been replaced
+        Files.write(newJournalFile.toPath(), oldJournal);
+        try (SRTJournal journal = SRTJournal.open(srtFile)) {
+            assertSRTInfoEquals(expected, journal.getSRTInfo());
+        }
+        assertFalse(newJournalFile.exists());
+    }
+    
+    @Test
+    public void testModifiedSRTFile() throws Exception {
+        try (SRTJournal journal = SRTJournal.open(srtFile)) {
+            journal.delete(1);
+        }
+        Files.write(srtFile.toPath(), "1\n00:00:01,000 --> 00:00:02,000\nOther\n\n".getBytes(
+            StandardCharsets.UTF_8));
+        try (SRTJournal journal = SRTJournal.open(srtFile)) {
+            assertSRTInfoEquals(SRTReader.read(srtFile), journal.getSRTInfo());
+        }
+    }
+    
+    @Test(expected = SRTJournalException.class)
+    public void testClosed() {
+        SRTJournal journal = SRTJournal.open(srtFile);
+        journal.close();
+        journal.delete(1);
+    }
+}
@@ -25,9 +25,19 @@ package org.fredy.jsrt.api;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 
 /**
  * @author fredy
@@ -135,4 +145,155 @@ public class SRTReaderTest {
     public void testReadInvalidMissingSubtitle() {
         SRTReader.read(new File("src/test/resources/missing_subtitle.srt"));
     }
+
+    @Test
+    public void testIterator() throws Exception {
+        Iterator<SRT> iter = SRTReader.iterator(new StringReader(
+            "1\n00:00:20,000 --> 00:00:24,400\nHello World\n\n" +
+            "2\n00:00:24,600 --> 00:00:27,800\nFoo Bar\n"));
+        SRT srt = iter.next();
+        assertEquals(1, srt.number);
+        assertEquals("00:00:20,000", SRTTimeFormat.format(srt.startTime));
+        assertEquals("Hello World", srt.text.get(0));
+
+        srt = iter.next();
+        assertEquals(2, srt.number);
+        assertEquals("00:00:27,800", SRTTimeFormat.format(srt.endTime));
+        assertEquals("Foo Bar", srt.text.get(0));
+        assertFalse(iter.hasNext());
+    }
+
+    @Test
+    public void testStream() throws Exception {
+        try (Stream<SRT> stream = SRTReader.stream(Paths.get("src/test/resources/good.srt"))) {
+            List<SRT> srts = stream.collect(Collectors.toList());
+            assertEquals(2, srts.size());
+            assertEquals(1, srts.get(0).number);
+            assertEquals("Bye World", srts.get(0).text.get(1));
+            assertEquals(2, srts.get(1).number);
+            assertEquals("Bar Foo", srts.get(1).text.get(1));
+        }
+    }
+
+    @Test(expected = InvalidSRTException.class)
+    public void testStreamInvalidEndTime() {
+        try (Stream<SRT> stream = SRTReader.stream(Paths.get("src/test/resources/invalid_end_time.srt"))) {
+            stream.count();
+        }
+    }
+
+    @Test
+    public void testReadMapped() throws Exception {
+        for (String name : new String[] {"good.srt", "good_with_bom.srt",
+            "good_with_multiple_empty_lines.srt"}) {
+            File srtFile = new File("src/test/resources/" + name);
+            assertSameSRTInfo(SRTReader.read(srtFile), SRTReader.readMapped(srtFile));
+        }
+    }
+
+    @Test
+    public void testReadMappedLineTerminators() throws Exception {
+        File srtFile = File.createTempFile("jsrt", ".srt");
+        srtFile.deleteOnExit();
+        Files.write(srtFile.toPath(), (
+            "1\r\n00:00:20,000 --> 00:00:24,400\r\nHello World\r\n \r\n\r\n" +
+            "2\r00:00:24,600 --> 00:00:27,800 X1:1\rFoo Bar\r\r" +
+            "3\n1:2:3,4 --> 00:01:02,003\n\u00e9t\u00e9\n").getBytes(Charset.defaultCharset()));
+        SRTInfo info = SRTReader.readMapped(srtFile);
+        assertEquals(3, info.size());
+        assertEquals("00:00:27,800", SRTTimeFormat.format(info.get(2).endTime));
+        assertEquals("01:02:03,004", SRTTimeFormat.format(info.get(3).startTime));
+        assertSameSRTInfo(SRTReader.read(srtFile), info);
+    }
+
+    @Test
+    public void testReadMappedInvalid() {
+        for (String name : new String[] {"invalid_sub_number.srt", "missing_time.srt",
+            "invalid_time.srt", "invalid_start_time.srt", "invalid_end_time.srt",
+            "missing_subtitle.srt"}) {
+            File srtFile = new File("src/test/resources/" + name);
+            String expected = null;
+            try {
+                SRTReader.read(srtFile);
+            } catch (InvalidSRTException e) {
+                expected = e.getMessage();
+            }
+            try {
+                SRTReader.readMapped(srtFile);
+                fail(name + " should be invalid");
+            } catch (InvalidSRTException e) {
+                assertEquals(expected, e.getMessage());
+            }
+        }
+    }
+
+    @Test(expected = SRTReaderException.class)
+    public void testReadMappedFileDoesntExist() {
+        SRTReader.readMapped(new File("foo.srt"));
+    }
+
+    @Test
+    public void testReadParallel() throws Exception {
+        File srtFile = createLargeSRTFile(-1);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SRTInfo info = SRTReader.readParallel(srtFile, pool);
+            assertEquals(50000, info.size());
+            assertSameSRTInfo(SRTReader.read(srtFile), info);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadParallelInvalid() throws Exception {
+        File srtFile = createLargeSRTFile(40000);
+        String expected = null;
+        try {
+            SRTReader.read(srtFile);
+        } catch (InvalidSRTException e) {
+            expected = e.getMessage();
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SRTReader.readParallel(srtFile, pool);
+            fail("SRT file should be invalid");
+        } catch (InvalidSRTException e) {
+            assertEquals(expected, e.getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static File createLargeSRTFile(int invalidNumber) throws Exception {
+        File srtFile = File.createTempFile("jsrt", ".srt");
+        srtFile.deleteOnExit();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 1; i <= 50000; i++) {
+            sb.append(i).append(i % 3 == 0 ? "\r\n" : "\n");
+            sb.append(i == invalidNumber ? "invalid" : "00:00:20,000")
+                .append(" --> 00:00:24,400\n");
+            sb.append("Hello World ").append(i).append("\n");
+            if (i % 2 == 0) {
+                sb.append("1\n");
+            }
+            sb.append(i % 5 == 0 ? "\n\n" : "\n");
+        }
+        Files.write(srtFile.toPath(), sb.toString().getBytes(Charset.defaultCharset()));
+        return srtFile;
+    }
+
+    private static void assertSameSRTInfo(SRTInfo expected, SRTInfo actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<SRT> expectedIter = expected.iterator();
+        Iterator<SRT> actualIter = actual.iterator();
+        while (expectedIter.hasNext()) {
+            SRT e = expectedIter.next();
+            SRT a = actualIter.next();
+            assertEquals(e.number, a.number);
+            assertEquals(e.startTime, a.startTime);
+            assertEquals(e.endTime, a.endTime);
+            assertEquals(e.text, a.text);
+        }
+    }
 }
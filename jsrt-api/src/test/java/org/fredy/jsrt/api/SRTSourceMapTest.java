@@ -0,0 +1,194 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class SRTSourceMapTest {
+    private static final String SOURCE =
+        "\uFEFF1\r\n00:00:20,000 --> 00:00:24,400\r\nHello World\r\nBye World\r\n\r\n" +
+        "2\r\n00:00:24,600 --> 00:00:27,800\r\nFoo Bar\r\n \r\n\r\n" +
+        "3\n00:00:28,000 --> 00:00:29,000\nBar Foo\n\n" +
+        "4\r\n00:00:30,000 --> 00:00:31,000\r\nLast";
+    // the BOM and the empty lines between the byte ranges are not copied
+    private static final String COPIED = SOURCE.substring(1).replace(" \r\n\r\n", " \r\n");
+    private final File srtFile = new File("src/test/resources/test_source_map.srt");
+    private final File otherFile = new File("src/test/resources/test_source_map2.srt");
+    
+    @After
+    public void cleanUp() {
+        srtFile.delete();
+        otherFile.delete();
+    }
+    
+    private static void assertSRTInfoEquals(SRTInfo expected, SRTInfo actual) {
+        assertEquals(expected.size(), actual.size());
+        Iterator<SRT> iter = actual.iterator();
+        for (SRT srt : expected) {
+            assertEquals(srt, iter.next());
+        }
+    }
+    
+    private static String read(File file) throws Exception {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+    
+    @Test
+    public void testReadMapped() throws Exception {
+        Files.write(srtFile.toPath(), SOURCE.getBytes(StandardCharsets.UTF_8));
+        SRTSourceMap sourceMap = new SRTSourceMap();
+        SRTInfo info = SRTReader.readMapped(srtFile, sourceMap);
+        assertSRTInfoEquals(SRTReader.read(srtFile), info);
+        // the last SRT object is not followed by an empty line
+        assertEquals(3, sourceMap.size());
+        assertEquals(srtFile, sourceMap.getFile());
+        int index = sourceMap.indexOf(info.get(2));
+        // the BOM is one char but three bytes
+        assertEquals("2\r\n00:00:24,600 --> 00:00:27,800\r\nFoo Bar\r\n \r\n", SOURCE.substring(
+            (int) sourceMap.start(index) - 2, (int) sourceMap.end(index) - 2));
+        assertEquals(-1, sourceMap.indexOf(info.get(4)));
+    }
+    
+    @Test
+    public void testWriteIncremental() throws Exception {
+        Files.write(srtFile.toPath(), SOURCE.getBytes(StandardCharsets.UTF_8));
+        SRTSourceMap sourceMap = new SRTSourceMap();
+        SRTInfo info = SRTReader.readMapped(srtFile, sourceMap);
+        String sep = System.lineSeparator();
+        
+        SRTWriter.writeIncremental(srtFile, info, sourceMap);
+        String last = "4" + sep + "00:00:30,000 --> 00:00:31,000" + sep + "Last" + sep + sep;
+        assertEquals(COPIED.substring(0, COPIED.indexOf("4\r\n")) + last, read(srtFile));
+        assertEquals(4, sourceMap.size());
+        
+        // only the changed SRT object is encoded
+        info.add(info.get(2).withText("Changed"));
+        SRTWriter.writeIncremental(srtFile, info, sourceMap);
+        String changed = "2" + sep + "00:00:24,600 --> 00:00:27,800" + sep + "Changed" + sep + sep;
+        String expected = COPIED.substring(0, COPIED.indexOf("2\r\n")) + changed +
+            COPIED.substring(COPIED.indexOf("3\n"), COPIED.indexOf("4\r\n")) + last;
+        assertEquals(expected, read(srtFile));
+        assertSRTInfoEquals(info, SRTReader.read(srtFile));
+        
+        // the source map has been updated for the new file
+        info.remove(3);
+        SRTWriter.writeIncremental(otherFile, info, sourceMap);
+        expected = expected.replace(COPIED.substring(COPIED.indexOf("3\n"),
+            COPIED.indexOf("4\r\n")), "");
+        assertEquals(expected, read(otherFile));
+        assertEquals(otherFile, sourceMap.getFile());
+        assertEquals(3, sourceMap.size());
+        assertSRTInfoEquals(info, SRTReader.read(otherFile));
+    }
+    
+    @Test
+    public void testWriteIncrementalRenumbered() throws Exception {
+        Files.write(srtFile.toPath(), SOURCE.getBytes(StandardCharsets.UTF_8));
+        SRTSourceMap sourceMap = new SRTSourceMap();
+        SRTInfo info = SRTReader.readMapped(srtFile, sourceMap);
+        info.delete(1);
+        SRTWriter.writeIncremental(srtFile, info, sourceMap);
+        assertSRTInfoEquals(info, SRTReader.read(srtFile));
+        
+        SRTWriter.write(otherFile, info);
+        assertEquals(read(otherFile), read(srtFile));
+    }
+    
+    @Test
+    public void testWriteIncrementalModifiedFile() throws Exception {
+        Files.write(srtFile.toPath(), SOURCE.getBytes(StandardCharsets.UTF_8));
+        SRTSourceMap sourceMap = new SRTSourceMap();
+        SRTInfo info = SRTReader.readMapped(srtFile, sourceMap);
+        Files.write(srtFile.toPath(), "1\n00:00:00,000 --> 00:00:01,000\nOther\n\n".getBytes(
+            StandardCharsets.UTF_8));
+        
+        SRTWriter.writeIncremental(srtFile, info, sourceMap);
+        SRTWriter.write(otherFile, info);
+        assertEquals(read(otherFile), read(srtFile));
+        
+        SRTWriter.writeIncremental(otherFile, new SRTInfo(), new SRTSourceMap());
+        assertEquals("", read(otherFile));
+    }
+    
+    @Test
+    public void testWriteIncrementalSameSizeAndTime() throws Exception {
+        Files.write(srtFile.toPath(), SOURCE.getBytes(StandardCharsets.UTF_8));
+        SRTSourceMap sourceMap = new SRTSourceMap();
+        SRTInfo info = SRTReader.readMapped(srtFile, sourceMap);
+        // a modification that keeps the size and the last modified time
+        long lastModified = srtFile.lastModified();
+        Files.write(srtFile.toPath(), SOURCE.replace("Hello", "Jello").getBytes(
+            StandardCharsets.UTF_8));
+        assertTrue(srtFile.setLastModified(lastModified));
+        
+        SRTWriter.writeIncremental(srtFile, info, sourceMap);
+        SRTWriter.write(otherFile, info);
+        assertEquals(read(otherFile), read(srtFile));
+    }
+    
+    @Test
+    public void testWriteIncrementalModifiedInTheMiddle() throws Exception {
+        StringBuilder source = new StringBuilder();
+        for (int i = 1; i <= 5000; i++) {
+            source.append(i).append("\n00:00:01,000 --> 00:00:02,000\nLine ").append(i)
+                .append("\n\n");
+        }
+        Files.write(srtFile.toPath(), source.toString().getBytes(StandardCharsets.UTF_8));
+        SRTSourceMap sourceMap = new SRTSourceMap();
+        SRTInfo info = SRTReader.readMapped(srtFile, sourceMap);
+        // far from both ends of the file, keeping the size and the last
+        // modified time
+        long lastModified = srtFile.lastModified();
+        Files.write(srtFile.toPath(), source.toString().replace("Line 2500\n", "Edit 2500\n")
+            .getBytes(StandardCharsets.UTF_8));
+        assertTrue(srtFile.setLastModified(lastModified));
+        
+        SRTWriter.writeIncremental(srtFile, info, sourceMap);
+        SRTWriter.write(otherFile, info);
+        assertEquals(read(otherFile), read(srtFile));
+    }
+    
+    @Test
+    public void testWriteIncrementalUnsorted() throws Exception {
+        String cue1 = "1\r\n00:00:01,000 --> 00:00:02,000\r\nOne\r\n\r\n";
+        String cue2 = "2\r\n00:00:03,000 --> 00:00:04,000\r\nTwo\r\n\r\n";
+        Files.write(srtFile.toPath(), (cue2 + cue1).getBytes(StandardCharsets.UTF_8));
+        SRTSourceMap sourceMap = new SRTSourceMap();
+        SRTInfo info = SRTReader.readMapped(srtFile, sourceMap);
+        SRTWriter.writeIncremental(srtFile, info, sourceMap);
+        assertEquals(cue1 + cue2, read(srtFile));
+        assertEquals(0, sourceMap.indexOf(info.get(1)));
+        assertEquals(1, sourceMap.indexOf(info.get(2)));
+    }
+}
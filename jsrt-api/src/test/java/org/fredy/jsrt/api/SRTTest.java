@@ -0,0 +1,69 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class SRTTest {
+
+    @Test
+    public void testWithNumber() {
+        SRT srt = new SRT(1, 1000, 2000, "Hello", "World");
+        SRT newSRT = srt.withNumber(2);
+        assertEquals(2, newSRT.number);
+        assertEquals(1000, newSRT.startTime);
+        assertEquals(2000, newSRT.endTime);
+        assertSame(srt.text, newSRT.text);
+        assertSame(srt, srt.withNumber(1));
+    }
+    
+    @Test
+    public void testWithTimes() {
+        SRT srt = new SRT(1, 1000, 2000, "Hello", "World");
+        SRT newSRT = srt.withTimes(3000, 4000);
+        assertEquals(1, newSRT.number);
+        assertEquals(3000, newSRT.startTime);
+        assertEquals(4000, newSRT.endTime);
+        assertSame(srt.text, newSRT.text);
+        assertSame(srt, srt.withTimes(1000, 2000));
+    }
+    
+    @Test
+    public void testWithText() {
+        SRT srt = new SRT(1, 1000, 2000, "Hello", "World");
+        SRT newSRT = srt.withText("Bye");
+        assertEquals(1, newSRT.number);
+        assertEquals(1000, newSRT.startTime);
+        assertEquals(2000, newSRT.endTime);
+        assertEquals(Arrays.asList("Bye"), newSRT.text);
+        assertEquals(Arrays.asList("Foo", "Bar"), srt.withText(Arrays.asList("Foo", "Bar")).text);
+        assertEquals(Arrays.asList("Hello", "World"), srt.text);
+    }
+}
@@ -0,0 +1,73 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class SRTTextTest {
+
+    @Test
+    public void testLines() {
+        SRTText text = SRTText.of("Hello", "", "World!");
+        assertEquals(3, text.size());
+        assertEquals("Hello", text.get(0));
+        assertEquals("", text.get(1));
+        assertEquals("World!", text.get(2));
+        assertEquals(Arrays.asList("Hello", "", "World!"), text);
+        assertEquals(new ArrayList<>(Arrays.asList("Hello", "", "World!")).hashCode(),
+            text.hashCode());
+        
+        SRTText single = SRTText.of(Arrays.asList("Foo"));
+        assertEquals(1, single.size());
+        assertEquals("Foo", single.get(0));
+        assertEquals(0, SRTText.of().size());
+    }
+    
+    @Test
+    public void testImmutable() {
+        List<String> lines = new ArrayList<>(Arrays.asList("Foo", "Bar"));
+        SRTText text = SRTText.of(lines);
+        lines.set(0, "Baz");
+        assertEquals("Foo", text.get(0));
+        assertSame(text, SRTText.of(text));
+        try {
+            text.add("Baz");
+            fail();
+        } catch (UnsupportedOperationException e) {
+        }
+    }
+    
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        SRTText.of("Foo").get(1);
+    }
+}
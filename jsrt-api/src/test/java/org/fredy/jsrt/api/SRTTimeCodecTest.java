@@ -0,0 +1,117 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class SRTTimeCodecTest {
+    @Test
+    public void testParse() {
+        assertEquals(20000, SRTTimeCodec.parse("00:00:20,000"));
+        assertEquals(((1 * 60 + 2) * 60 + 3) * 1000 + 4, SRTTimeCodec.parse("01:02:03,004"));
+        assertEquals(1005, SRTTimeCodec.parse("0:0:1,5"));
+        assertEquals(3661000, SRTTimeCodec.parse("00:61:01,000"));
+        assertEquals(1000, SRTTimeCodec.parse(" 00:00:01,000 X1:40"));
+        assertEquals(24600, SRTTimeCodec.parse("1 --> 00:00:24,600", 6, 18));
+    }
+    
+    @Test
+    public void testParseInvalid() {
+        assertEquals(SRTTimeCodec.INVALID, SRTTimeCodec.parse(""));
+        assertEquals(SRTTimeCodec.INVALID, SRTTimeCodec.parse("invalid"));
+        assertEquals(SRTTimeCodec.INVALID, SRTTimeCodec.parse("00:00:01"));
+        assertEquals(SRTTimeCodec.INVALID, SRTTimeCodec.parse("00:00:01.000"));
+        assertEquals(SRTTimeCodec.INVALID, SRTTimeCodec.parse("+1:00:01,000"));
+        assertEquals(SRTTimeCodec.INVALID, SRTTimeCodec.parse("00:00:01,1234567890"));
+    }
+    
+    @Test
+    public void testParseBytes() {
+        ByteBuffer buffer = ByteBuffer.wrap(
+            "00:00:24,600 --> 00:00:27,800".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(24600, SRTTimeCodec.parse(buffer, 0, 12));
+        assertEquals(27800, SRTTimeCodec.parse(buffer, 17, 29));
+        assertEquals(SRTTimeCodec.INVALID, SRTTimeCodec.parse(buffer, 12, 29));
+        assertEquals(0, buffer.position());
+    }
+    
+    @Test
+    public void testFormat() {
+        assertEquals("00:00:20,000", SRTTimeCodec.format(20000));
+        assertEquals("01:02:03,004", SRTTimeCodec.format(((1 * 60 + 2) * 60 + 3) * 1000 + 4));
+        // wraps around at 24 hours
+        assertEquals("23:58:24,600", SRTTimeCodec.format(24600 - 2 * 60 * 1000));
+        assertEquals("01:00:00,000", SRTTimeCodec.format(25 * 60 * 60 * 1000L));
+        
+        char[] chars = new char[SRTTimeCodec.LENGTH + 2];
+        assertEquals(SRTTimeCodec.LENGTH + 1, SRTTimeCodec.format(24600, chars, 1));
+        assertEquals("00:00:24,600", new String(chars, 1, SRTTimeCodec.LENGTH));
+        
+        StringBuilder sb = new StringBuilder("[");
+        SRTTimeCodec.format(27800, sb);
+        assertEquals("[00:00:27,800", sb.toString());
+        
+        ByteBuffer buffer = ByteBuffer.allocate(SRTTimeCodec.LENGTH);
+        SRTTimeCodec.format(27800, buffer);
+        assertEquals("00:00:27,800", new String(buffer.array(), StandardCharsets.US_ASCII));
+    }
+    
+    @Test
+    public void testConcurrentParseAndFormat() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final int offset = t;
+                futures.add(executor.submit(() -> {
+                    char[] chars = new char[SRTTimeCodec.LENGTH];
+                    for (long millis = offset; millis < 24 * 60 * 60 * 1000L; millis += 9973) {
+                        SRTTimeCodec.format(millis, chars, 0);
+                        if (SRTTimeCodec.parse(new String(chars)) != millis) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
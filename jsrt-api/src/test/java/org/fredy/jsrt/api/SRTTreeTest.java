@@ -0,0 +1,127 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.api;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class SRTTreeTest {
+    
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(7);
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        SRTTree.Node root = null;
+        for (int i = 0; i < 5000; i++) {
+            int number = random.nextInt(200) - 20;
+            SRTTree.Node previous = root;
+            String previousContent = expected.toString();
+            switch (random.nextInt(4)) {
+            case 0:
+                expected.put(number, "put" + i);
+                root = SRTTree.put(root, new SRT(number, i, i, "put" + i));
+                break;
+            case 1:
+                expected.remove(number);
+                root = SRTTree.remove(root, number);
+                break;
+            case 2:
+                TreeMap<Integer, String> shifted = new TreeMap<>(expected.headMap(number));
+                for (Map.Entry<Integer, String> e : expected.tailMap(number).entrySet()) {
+                    shifted.put(e.getKey() + 1, e.getValue());
+                }
+                shifted.put(number, "insert" + i);
+                expected = shifted;
+                root = SRTTree.insert(root, new SRT(number, i, i, "insert" + i));
+                break;
+            default:
+                if (expected.containsKey(number)) {
+                    shifted = new TreeMap<>(expected.headMap(number));
+                    for (Map.Entry<Integer, String> e : expected.tailMap(number, false).entrySet()) {
+                        shifted.put(e.getKey() - 1, e.getValue());
+                    }
+                    expected = shifted;
+                }
+                root = SRTTree.delete(root, number);
+                break;
+            }
+            assertTree(expected, root);
+            // the operations must not modify the previous tree
+            assertEquals(previousContent, toMap(previous).toString());
+        }
+    }
+    
+    @Test
+    public void testCeiling() {
+        SRTTree.Node root = null;
+        root = SRTTree.put(root, new SRT(5, 0, 0, "Five"));
+        root = SRTTree.put(root, new SRT(10, 0, 0, "Ten"));
+        root = SRTTree.insert(root, new SRT(1, 0, 0, "One"));
+        
+        assertEquals(6, SRTTree.ceiling(root, 2).number);
+        assertEquals(11, SRTTree.ceiling(root, 7).number);
+        assertEquals("Ten", SRTTree.ceiling(root, 11).text.get(0));
+        try {
+            SRTTree.ceiling(root, 12);
+            fail();
+        } catch (NoSuchElementException e) {
+        }
+    }
+    
+    private static void assertTree(TreeMap<Integer, String> expected, SRTTree.Node root) {
+        assertEquals(expected.size(), SRTTree.size(root));
+        assertEquals(expected.toString(), toMap(root).toString());
+        for (int number = -25; number < 230; number++) {
+            assertEquals(expected.containsKey(number), SRTTree.contains(root, number));
+            Map.Entry<Integer, String> ceiling = expected.ceilingEntry(number);
+            if (ceiling != null) {
+                SRT srt = SRTTree.ceiling(root, number);
+                assertEquals(ceiling.getKey().intValue(), srt.number);
+                assertEquals(ceiling.getValue(), srt.text.get(0));
+            }
+        }
+    }
+    
+    private static TreeMap<Integer, String> toMap(SRTTree.Node root) {
+        TreeMap<Integer, String> map = new TreeMap<>();
+        Iterator<SRT> iter = SRTTree.iterator(root);
+        int previous = Integer.MIN_VALUE;
+        while (iter.hasNext()) {
+            SRT srt = iter.next();
+            assertTrue(srt.number > previous);
+            previous = srt.number;
+            map.put(srt.number, srt.text.get(0));
+        }
+        return map;
+    }
+}
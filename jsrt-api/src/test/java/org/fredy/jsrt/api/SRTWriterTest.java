@@ -24,8 +24,16 @@ package org.fredy.jsrt.api;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.concurrent.ForkJoinPool;
 
 import org.fredy.jsrt.api.SRT;
 import org.fredy.jsrt.api.SRTInfo;
@@ -42,6 +50,8 @@ public class SRTWriterTest {
     @AfterClass
     public static void cleanUp() {
         new File("src/test/resources/test1.srt").delete();
+        new File("src/test/resources/test2.srt").delete();
+        new File("src/test/resources/test3.srt").delete();
     }
     
     @Test
@@ -76,4 +86,67 @@ public class SRTWriterTest {
         assertEquals(inSRT.text.get(0), outSRT.text.get(0));
         assertEquals(inSRT.text.get(1), outSRT.text.get(1));
     }
+    
+    @Test
+    public void testWriteStream() throws Exception {
+        SRT srt1 = new SRT(1, 20000, 24400, "Hello World", "Bye World");
+        SRT srt2 = new SRT(2, 24600, 27800, "F\u00fc Bar");
+        String expected =
+            "1\r\n00:00:20,000 --> 00:00:24,400\r\nHello World\r\nBye World\r\n\r\n" +
+            "2\r\n00:00:24,600 --> 00:00:27,800\r\nF\u00fc Bar\r\n\r\n";
+        
+        StringWriter writer = new StringWriter();
+        SRTWriter.write(writer, Arrays.asList(srt1, srt2).iterator(), "\r\n");
+        assertEquals(expected, writer.toString());
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SRTWriter.write(out, Arrays.asList(srt1, srt2).stream(), StandardCharsets.UTF_8, "\r\n");
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+        
+        out = new ByteArrayOutputStream();
+        SRTWriter.write(Channels.newChannel(out), Arrays.asList(srt1, srt2).iterator(),
+            StandardCharsets.ISO_8859_1, "\r\n");
+        assertArrayEquals(expected.getBytes(StandardCharsets.ISO_8859_1), out.toByteArray());
+    }
+    
+    @Test
+    public void testWriteFileDefaults() throws Exception {
+        SRTInfo info = new SRTInfo();
+        info.add(new SRT(1, 20000, 24400, "Hello World", "Bye World"));
+        info.add(new SRT(2, 24600, 27800, "Foo Bar"));
+        File srtFile = new File("src/test/resources/test2.srt");
+        SRTWriter.write(srtFile, info);
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SRTWriter.write(out, info.iterator(), Charset.defaultCharset(), System.lineSeparator());
+        assertArrayEquals(Files.readAllBytes(srtFile.toPath()), out.toByteArray());
+    }
+    
+    @Test
+    public void testWriteParallel() throws Exception {
+        SRTInfo info = new SRTInfo();
+        for (int i = 1; i <= 20000; i++) {
+            info.add(new SRT(i, i * 1000L, i * 1000L + 800, "Line " + i,
+                (i % 7 == 0) ? "F\u00fc Bar" : "Foo Bar"));
+        }
+        File srtFile = new File("src/test/resources/test2.srt");
+        SRTWriter.write(srtFile, info);
+        File parallelFile = new File("src/test/resources/test3.srt");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            SRTWriter.writeParallel(parallelFile, info, pool);
+            assertArrayEquals(Files.readAllBytes(srtFile.toPath()),
+                Files.readAllBytes(parallelFile.toPath()));
+            
+            // small SRTInfo objects are written sequentially
+            SRTInfo small = new SRTInfo();
+            small.add(info.get(1));
+            SRTWriter.write(srtFile, small);
+            SRTWriter.writeParallel(parallelFile, small, pool);
+            assertArrayEquals(Files.readAllBytes(srtFile.toPath()),
+                Files.readAllBytes(parallelFile.toPath()));
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
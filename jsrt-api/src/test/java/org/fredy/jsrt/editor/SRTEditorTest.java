@@ -382,4 +382,134 @@ public class SRTEditorTest {
         SRT s = srtInfo.get(2);
         assertEquals("test", StringUtils.join(s.text, ""));
     }
+    
+    @Test
+    public void testUpdateTimesRange() throws Exception {
+        // there is no subtitle 5 in the range
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:10,000"),
+            SRTTimeFormat.parse("00:00:12,000"), "Foo1"));
+        srtInfo.add(new SRT(2, SRTTimeFormat.parse("00:00:20,000"),
+            SRTTimeFormat.parse("00:00:22,000"), "Foo2"));
+        srtInfo.add(new SRT(3, SRTTimeFormat.parse("00:00:30,000"),
+            SRTTimeFormat.parse("00:00:32,000"), "Foo3"));
+        srtInfo.add(new SRT(4, SRTTimeFormat.parse("00:00:40,000"),
+            SRTTimeFormat.parse("00:00:42,000"), "Foo4"));
+        srtInfo.add(new SRT(6, SRTTimeFormat.parse("00:01:00,000"),
+            SRTTimeFormat.parse("00:01:02,000"), "Foo6"));
+        
+        SRTEditor.updateTimes(srtInfo, 3, 6, SRTTimeFormat.Type.SECOND, 1);
+        
+        assertEquals(5, srtInfo.size());
+        assertEquals("00:00:20,000", SRTTimeFormat.format(srtInfo.get(2).startTime));
+        assertEquals("00:00:31,000", SRTTimeFormat.format(srtInfo.get(3).startTime));
+        assertEquals("00:00:33,000", SRTTimeFormat.format(srtInfo.get(3).endTime));
+        assertEquals("00:00:41,000", SRTTimeFormat.format(srtInfo.get(4).startTime));
+        assertFalse(srtInfo.contains(5));
+        assertEquals("00:01:01,000", SRTTimeFormat.format(srtInfo.get(6).startTime));
+    }
+    
+    @Test
+    public void testUpdateTimesTimeWindow() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        // starts before the time window but is still displayed in it
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:19,999"),
+            SRTTimeFormat.parse("00:00:25,000"), "Before"));
+        srtInfo.add(new SRT(2, SRTTimeFormat.parse("00:00:20,000"),
+            SRTTimeFormat.parse("00:00:22,000"), "First"));
+        // two speakers starting at the same time
+        srtInfo.add(new SRT(3, SRTTimeFormat.parse("00:00:30,000"),
+            SRTTimeFormat.parse("00:00:32,000"), "Speaker1"));
+        srtInfo.add(new SRT(4, SRTTimeFormat.parse("00:00:30,000"),
+            SRTTimeFormat.parse("00:00:32,000"), "Speaker2"));
+        srtInfo.add(new SRT(5, SRTTimeFormat.parse("00:00:40,000"),
+            SRTTimeFormat.parse("00:00:42,000"), "Last"));
+        srtInfo.add(new SRT(6, SRTTimeFormat.parse("00:00:40,001"),
+            SRTTimeFormat.parse("00:00:42,000"), "After"));
+        
+        SRTEditor.updateTimes(srtInfo, "00:00:20,000", "00:00:40,000",
+            SRTTimeFormat.Type.MILLISECOND, -500);
+        
+        assertEquals("00:00:19,999", SRTTimeFormat.format(srtInfo.get(1).startTime));
+        assertEquals("00:00:19,500", SRTTimeFormat.format(srtInfo.get(2).startTime));
+        assertEquals("00:00:29,500", SRTTimeFormat.format(srtInfo.get(3).startTime));
+        assertEquals("00:00:29,500", SRTTimeFormat.format(srtInfo.get(4).startTime));
+        assertEquals("00:00:39,500", SRTTimeFormat.format(srtInfo.get(5).startTime));
+        assertEquals("00:00:41,500", SRTTimeFormat.format(srtInfo.get(5).endTime));
+        assertEquals("00:00:40,001", SRTTimeFormat.format(srtInfo.get(6).startTime));
+    }
+    
+    @Test
+    public void testUpdateTextsRange() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        for (int i = 1; i <= 4; i++) {
+            srtInfo.add(new SRT(i, SRTTimeFormat.parse("00:00:0" + i + ",000"),
+                SRTTimeFormat.parse("00:00:0" + i + ",500"), "Hello World " + i));
+        }
+        SRTEditor.updateTexts(srtInfo, 2, 3, 5);
+        SRTEditor.updateTexts(srtInfo, "00:00:04,000", "00:00:04,000", 5);
+        
+        assertEquals(Arrays.asList("Hello World 1"), srtInfo.get(1).text);
+        assertEquals(Arrays.asList("Hello", "World", "2"), srtInfo.get(2).text);
+        assertEquals(Arrays.asList("Hello", "World", "3"), srtInfo.get(3).text);
+        assertEquals(Arrays.asList("Hello", "World", "4"), srtInfo.get(4).text);
+    }
+    
+    @Test
+    public void testRemoveSubtitlesRange() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        for (int i = 1; i <= 5; i++) {
+            srtInfo.add(new SRT(i, SRTTimeFormat.parse("00:00:0" + i + ",000"),
+                SRTTimeFormat.parse("00:00:0" + i + ",500"), "Foo" + i));
+        }
+        SRTEditor.removeSubtitles(srtInfo, 2, 3);
+        
+        // the subtitles after the range are renumbered
+        assertEquals(3, srtInfo.size());
+        assertEquals("Foo1", StringUtils.join(srtInfo.get(1).text, ""));
+        assertEquals("Foo4", StringUtils.join(srtInfo.get(2).text, ""));
+        assertEquals("Foo5", StringUtils.join(srtInfo.get(3).text, ""));
+    }
+    
+    @Test
+    public void testRemoveSubtitlesTimeWindow() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        // overlaps the time window but starts before it
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:10,000"),
+            SRTTimeFormat.parse("00:00:20,000"), "Long"));
+        srtInfo.add(new SRT(2, SRTTimeFormat.parse("00:00:15,000"),
+            SRTTimeFormat.parse("00:00:16,000"), "Speaker1"));
+        srtInfo.add(new SRT(3, SRTTimeFormat.parse("00:00:15,000"),
+            SRTTimeFormat.parse("00:00:16,000"), "Speaker2"));
+        srtInfo.add(new SRT(4, SRTTimeFormat.parse("00:00:17,000"),
+            SRTTimeFormat.parse("00:00:18,000"), "Middle"));
+        srtInfo.add(new SRT(5, SRTTimeFormat.parse("00:00:25,000"),
+            SRTTimeFormat.parse("00:00:26,000"), "End"));
+        
+        SRTEditor.removeSubtitles(srtInfo, "00:00:15,000", "00:00:17,000");
+        // a time window without subtitles
+        SRTEditor.removeSubtitles(srtInfo, "00:00:21,000", "00:00:24,000");
+        
+        assertEquals(2, srtInfo.size());
+        assertEquals("Long", StringUtils.join(srtInfo.get(1).text, ""));
+        assertEquals("End", StringUtils.join(srtInfo.get(2).text, ""));
+    }
+    
+    @Test(expected = SRTEditorException.class)
+    public void testInvalidRange() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:24,600"),
+            SRTTimeFormat.parse("00:00:26,600"), "Foo"));
+        
+        SRTEditor.removeSubtitles(srtInfo, 1, 0);
+    }
+    
+    @Test(expected = SRTEditorException.class)
+    public void testInvalidTimeWindow() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:24,600"),
+            SRTTimeFormat.parse("00:00:26,600"), "Foo"));
+        
+        SRTEditor.updateTexts(srtInfo, "00:00:26,600", "00:00:24,600", 5);
+    }
 }
@@ -0,0 +1,75 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.editor;
+
+import static org.junit.Assert.*;
+
+import java.awt.Font;
+import java.util.Arrays;
+import java.util.List;
+
+import org.fredy.jsrt.api.SRT;
+import org.fredy.jsrt.api.SRTInfo;
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class SRTFontMetricsTest {
+    private final SRTFontMetrics metrics = new SRTFontMetrics(Font.SANS_SERIF, Font.PLAIN, 20);
+
+    @Test
+    public void testWidth() {
+        assertEquals(0, metrics.width(""));
+        assertEquals(metrics.advance('W') * 4, metrics.width("WWWW"));
+        assertEquals(metrics.advance('W') + metrics.advance(' ') + metrics.advance('i'),
+            metrics.width("W i"));
+        assertEquals(metrics.advance('W'), metrics.advance('W'));
+        assertTrue(metrics.advance('W') > metrics.advance('i'));
+    }
+    
+    @Test
+    public void testBreakLines() {
+        int width = metrics.width("iiii iiii");
+        List<String> narrow = Arrays.asList("iiii iiii");
+        assertEquals(narrow, SRTLineBreaker.breakLines(narrow, width, metrics));
+        assertEquals(Arrays.asList("WWWW", "WWWW"),
+            SRTLineBreaker.breakLines(Arrays.asList("WWWW WWWW"), width, metrics));
+        assertEquals(Arrays.asList("<i>WWWW</i>", "WWWW"),
+            SRTLineBreaker.breakLines(Arrays.asList("<i>WWWW</i> WWWW"), width, metrics));
+    }
+    
+    @Test
+    public void testUpdateTexts() {
+        SRTInfo info = new SRTInfo();
+        info.add(new SRT(1, 0, 1000, "iiii iiii"));
+        info.add(new SRT(2, 1000, 2000, "WWWW WWWW"));
+        int width = metrics.width("iiii iiii");
+        SRTEditor.updateTexts(info, metrics, width);
+        assertEquals(Arrays.asList("iiii iiii"), info.get(1).text);
+        assertEquals(Arrays.asList("WWWW", "WWWW"), info.get(2).text);
+        
+        SRTEditor.updateText(info, 1, metrics, metrics.width("iiii"));
+        assertEquals(Arrays.asList("iiii", "iiii"), info.get(1).text);
+    }
+}
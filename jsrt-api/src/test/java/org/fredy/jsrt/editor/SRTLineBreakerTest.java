@@ -0,0 +1,123 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.editor;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.fredy.jsrt.api.SRT;
+import org.fredy.jsrt.api.SRTInfo;
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class SRTLineBreakerTest {
+
+    @Test
+    public void testBalanced() {
+        List<String> lines = SRTLineBreaker.breakLines(
+            Arrays.asList("The quick brown fox jumps over the lazy dog"), 32);
+        assertEquals(Arrays.asList("The quick brown fox", "jumps over the lazy dog"), lines);
+    }
+    
+    @Test
+    public void testFits() {
+        List<String> text = Arrays.asList("Hello", "World");
+        assertEquals(text, SRTLineBreaker.breakLines(text, 11));
+        assertEquals(Arrays.asList("Hello", "World"), SRTLineBreaker.breakLines(
+            Arrays.asList("Hello   World"), 10));
+        assertEquals(Arrays.asList(), SRTLineBreaker.breakLines(Arrays.<String>asList(), 10));
+    }
+    
+    @Test
+    public void testTags() {
+        assertEquals(Arrays.asList("<i>Hello there</i>", "my friend"),
+            SRTLineBreaker.breakLines(Arrays.asList("<i>Hello there</i> my friend"), 11));
+        assertEquals(Arrays.asList("<font color=\"red\">Hello</font>", "world"),
+            SRTLineBreaker.breakLines(Arrays.asList("<font color=\"red\">Hello</font> world"), 5));
+        assertEquals(Arrays.asList("{\\an8}Hello", "world"),
+            SRTLineBreaker.breakLines(Arrays.asList("{\\an8}Hello world"), 5));
+        // an unclosed bracket is not a tag
+        assertEquals(Arrays.asList("a <", "b"),
+            SRTLineBreaker.breakLines(Arrays.asList("a < b"), 3));
+    }
+    
+    @Test
+    public void testLongWords() {
+        assertEquals(Arrays.asList("a", "verylongword", "b"),
+            SRTLineBreaker.breakLines(Arrays.asList("a verylongword b"), 5));
+    }
+    
+    @Test
+    public void testCache() {
+        List<String> lines = SRTLineBreaker.breakLines(
+            Arrays.asList("0123456789 0123456789 0123456789"), 21);
+        assertSame(lines, SRTLineBreaker.breakLines(
+            Arrays.asList("0123456789 0123456789 0123456789"), 21));
+        // the width is part of the cache key
+        assertEquals(Arrays.asList("0123456789", "0123456789", "0123456789"),
+            SRTLineBreaker.breakLines(Arrays.asList("0123456789 0123456789 0123456789"), 20));
+    }
+    
+    @Test
+    public void testCacheKeepsUnchangedText() {
+        SRT srt1 = new SRT(1, 0, 1000, "Hello", "World");
+        SRT srt2 = new SRT(2, 0, 1000, "Hello", "World");
+        assertSame(srt1, SRTEditor.breakText(srt1, 11));
+        // a cache hit computed for another subtitle keeps this one unchanged
+        assertSame(srt2, SRTEditor.breakText(srt2, 11));
+        
+        // already broken text is kept when it is first seen, not only on a cache hit
+        SRT srt3 = new SRT(3, 0, 1000, "aaaa bbbb", "cccc dddd");
+        assertSame(srt3, SRTEditor.breakText(srt3, 9));
+        assertSame(srt3, SRTEditor.breakText(srt3, 9));
+    }
+    
+    @Test(expected = SRTEditorException.class)
+    public void testInvalidWidth() {
+        SRTLineBreaker.breakLines(Arrays.asList("Foo"), 0);
+    }
+    
+    @Test
+    public void testUpdateTextsParallel() {
+        SRTInfo srtInfo = new SRTInfo();
+        SRTInfo expected = new SRTInfo();
+        for (int i = 1; i <= 1000; i++) {
+            SRT srt = new SRT(i, i, i, "Hello there " + i, "my friend, how are you?");
+            srtInfo.add(srt);
+            expected.add(srt);
+        }
+        SRTEditor.updateTextsParallel(srtInfo, 20);
+        SRTEditor.updateTexts(expected, 20);
+        
+        assertEquals(1000, srtInfo.size());
+        for (SRT srt : expected) {
+            assertEquals(srt.text, srtInfo.get(srt.number).text);
+        }
+        assertEquals(Arrays.asList("Hello there 1 my", "friend, how are you?"),
+            srtInfo.get(1).text);
+    }
+}
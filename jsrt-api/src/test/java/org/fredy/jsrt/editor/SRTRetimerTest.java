@@ -0,0 +1,112 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.editor;
+
+import static org.junit.Assert.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.fredy.jsrt.api.SRT;
+import org.fredy.jsrt.api.SRTInfo;
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class SRTRetimerTest {
+
+    @Test
+    public void testLinear() {
+        SRTRetimer retimer = SRTRetimer.linear(2, -500);
+        assertEquals(1500, retimer.apply(1000));
+        assertEquals(-500, retimer.apply(0));
+        
+        retimer = SRTRetimer.frameRate(25, 23.976);
+        assertEquals(Math.round(3600000 * 25 / 23.976), retimer.apply(3600000));
+    }
+    
+    @Test
+    public void testAnchors() {
+        SRTRetimer retimer = SRTRetimer.anchors(new long[] {1000, 2000, 4000},
+            new long[] {1500, 2000, 5000});
+        assertEquals(1500, retimer.apply(1000));
+        assertEquals(1750, retimer.apply(1500));
+        assertEquals(2000, retimer.apply(2000));
+        assertEquals(3500, retimer.apply(3000));
+        // the first and the last segments are extended
+        assertEquals(1000, retimer.apply(0));
+        assertEquals(6500, retimer.apply(5000));
+    }
+    
+    @Test
+    public void testRoundingModes() {
+        // t / 2 has ties for all odd t, both positive and negative
+        long[] sources = {0, 2};
+        long[] targets = {0, 1};
+        RoundingMode[] modes = {RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING,
+            RoundingMode.FLOOR, RoundingMode.HALF_UP, RoundingMode.HALF_DOWN,
+            RoundingMode.HALF_EVEN};
+        for (RoundingMode mode : modes) {
+            SRTRetimer anchors = SRTRetimer.anchors(sources, targets).withRoundingMode(mode);
+            SRTRetimer linear = SRTRetimer.linear(0.5, 0).withRoundingMode(mode);
+            for (long time = -13; time <= 13; time++) {
+                long expected = new BigDecimal(time).divide(new BigDecimal(2))
+                    .setScale(0, mode).longValueExact();
+                assertEquals(mode + " " + time, expected, anchors.apply(time));
+                assertEquals(mode + " " + time, expected, linear.apply(time));
+            }
+        }
+        // the sign of the result, not of the interpolated difference, counts
+        SRTRetimer retimer = SRTRetimer.anchors(new long[] {0, 2}, new long[] {1000, 999})
+            .withRoundingMode(RoundingMode.HALF_DOWN);
+        assertEquals(999, retimer.apply(1));
+    }
+    
+    @Test(expected = ArithmeticException.class)
+    public void testRoundingUnnecessary() {
+        SRTRetimer.linear(0.5, 0).withRoundingMode(RoundingMode.UNNECESSARY).apply(1);
+    }
+    
+    @Test(expected = SRTEditorException.class)
+    public void testInvalidAnchors() {
+        SRTRetimer.anchors(new long[] {1000, 1000}, new long[] {0, 1});
+    }
+    
+    @Test
+    public void testRetime() {
+        SRTInfo srtInfo = new SRTInfo();
+        for (int i = 1; i <= 100; i++) {
+            srtInfo.add(new SRT(i, i * 1000, i * 1000 + 500, "Foo" + i));
+        }
+        SRTInfo copy = new SRTInfo(srtInfo);
+        SRTEditor.updateTimes(srtInfo, SRTRetimer.linear(1, 250));
+        
+        for (SRT srt : srtInfo) {
+            assertEquals(srt.number * 1000 + 250, srt.startTime);
+            assertEquals(srt.number * 1000 + 750, srt.endTime);
+            assertSame(copy.get(srt.number).text, srt.text);
+        }
+        assertEquals(1000, copy.get(1).startTime);
+    }
+}
@@ -0,0 +1,125 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.editor;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.fredy.jsrt.api.SRT;
+import org.fredy.jsrt.api.SRTInfo;
+import org.fredy.jsrt.api.SRTReader;
+import org.fredy.jsrt.api.SRTTimeFormat;
+import org.fredy.jsrt.api.SRTWriter;
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class SRTTimeShiftViewTest {
+
+    @Test
+    public void testShift() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:01,000"),
+            SRTTimeFormat.parse("00:00:04,000"), "Foo"));
+        // overlaps subtitle 1
+        srtInfo.add(new SRT(2, SRTTimeFormat.parse("00:00:02,000"),
+            SRTTimeFormat.parse("00:00:03,000"), "Bar"));
+        srtInfo.add(new SRT(3, SRTTimeFormat.parse("00:10:00,000"),
+            SRTTimeFormat.parse("00:10:01,000"), "Baz"));
+        
+        SRTTimeShiftView view = new SRTTimeShiftView(srtInfo);
+        view.shift(SRTTimeFormat.Type.SECOND, 2);
+        view.shift(SRTTimeFormat.Type.MILLISECOND, -500);
+        
+        assertEquals(1500, view.getOffset());
+        assertEquals("00:00:02,500", SRTTimeFormat.format(view.get(1).startTime));
+        assertEquals("00:00:05,500", SRTTimeFormat.format(view.get(1).endTime));
+        // the overlap is kept
+        assertEquals("00:00:03,500", SRTTimeFormat.format(view.get(2).startTime));
+        assertEquals("00:00:04,500", SRTTimeFormat.format(view.get(2).endTime));
+        String[] startTimes = {"00:00:02,500", "00:00:03,500", "00:10:01,500"};
+        int i = 0;
+        for (SRT srt : view) {
+            assertEquals(startTimes[i++], SRTTimeFormat.format(srt.startTime));
+        }
+        assertEquals(3, i);
+        // the SRTInfo object is not modified
+        assertEquals("00:00:01,000", SRTTimeFormat.format(srtInfo.get(1).startTime));
+    }
+    
+    @Test
+    public void testScaleAndCommit() throws Exception {
+        // subtitles for 23.976 fps video converted to 25 fps video
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("01:00:00,000"),
+            SRTTimeFormat.parse("01:00:02,000"), "Foo"));
+        srtInfo.add(new SRT(2, SRTTimeFormat.parse("02:00:00,000"),
+            SRTTimeFormat.parse("02:00:02,000"), "Bar"));
+        SRTInfo copy = new SRTInfo(srtInfo);
+        SRTTimeShiftView view = new SRTTimeShiftView(srtInfo);
+        view.setScale(23.976 / 25);
+        view.setOffset(-100);
+        
+        // the same times as SRTRetimer.frameRate
+        SRTRetimer retimer = SRTRetimer.frameRate(23.976, 25);
+        assertEquals(retimer.apply(copy.get(2).startTime) - 100, view.get(2).startTime);
+        view.commit();
+        
+        assertEquals(0, view.getOffset());
+        assertEquals(1.0, view.getScale(), 0.0);
+        assertEquals(2, srtInfo.size());
+        assertEquals("00:57:32,444", SRTTimeFormat.format(srtInfo.get(1).startTime));
+        assertEquals("00:57:34,362", SRTTimeFormat.format(srtInfo.get(1).endTime));
+        assertEquals("01:55:04,988", SRTTimeFormat.format(srtInfo.get(2).startTime));
+        assertEquals("Bar", srtInfo.get(2).text.get(0));
+        assertEquals("01:00:00,000", SRTTimeFormat.format(copy.get(1).startTime));
+    }
+    
+    @Test(expected = SRTEditorException.class)
+    public void testInvalidScale() {
+        new SRTTimeShiftView(new SRTInfo()).setScale(0);
+    }
+    
+    @Test
+    public void testWrite() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:01,000"),
+            SRTTimeFormat.parse("00:00:01,500"), "Foo"));
+        srtInfo.add(new SRT(2, SRTTimeFormat.parse("00:00:02,000"),
+            SRTTimeFormat.parse("00:00:02,500"), "Bar"));
+        SRTTimeShiftView view = new SRTTimeShiftView(srtInfo);
+        view.setOffset(60000);
+        File srtFile = File.createTempFile("jsrt", ".srt");
+        try {
+            SRTWriter.write(srtFile, view);
+            srtInfo = SRTReader.read(srtFile);
+            assertEquals(2, srtInfo.size());
+            assertEquals("00:01:02,000", SRTTimeFormat.format(srtInfo.get(2).startTime));
+            assertEquals("00:01:02,500", SRTTimeFormat.format(srtInfo.get(2).endTime));
+        } finally {
+            srtFile.delete();
+        }
+    }
+}
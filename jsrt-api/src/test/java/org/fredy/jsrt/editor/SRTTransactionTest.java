@@ -0,0 +1,133 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.editor;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.fredy.jsrt.api.SRT;
+import org.fredy.jsrt.api.SRTInfo;
+import org.fredy.jsrt.api.SRTTimeFormat;
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class SRTTransactionTest {
+
+    @Test
+    public void testCommit() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:01,000"),
+            SRTTimeFormat.parse("00:00:02,000"), "Foo1"));
+        srtInfo.add(new SRT(2, SRTTimeFormat.parse("00:00:03,000"),
+            SRTTimeFormat.parse("00:00:04,000"), "Foo2"));
+        srtInfo.add(new SRT(3, SRTTimeFormat.parse("00:00:05,000"),
+            SRTTimeFormat.parse("00:00:06,000"), "Foo3"));
+        // each operation sees the numbering after the previous ones: New
+        // becomes 2, Foo3 becomes 4 and is removed, First becomes 1
+        SRTTransaction tx = SRTEditor.beginTransaction(srtInfo)
+            .insertSubtitle(2, "00:00:02,500", "00:00:02,900", Arrays.asList("New"))
+            .removeSubtitle(4)
+            .prependSubtitle("00:00:00,000", "00:00:00,500", Arrays.asList("First"))
+            .updateTime(1, SRTTimeFormat.Type.SECOND, 1)
+            .updateSubtitle(new SRT(5, SRTTimeFormat.parse("00:00:09,000"),
+                SRTTimeFormat.parse("00:00:09,500"), "Last"));
+        assertEquals(5, tx.size());
+        // nothing is applied before commit
+        assertEquals(3, srtInfo.size());
+        assertEquals("Foo1", srtInfo.get(1).text.get(0));
+        
+        tx.commit();
+        
+        assertEquals(0, tx.size());
+        String[] texts = {"First", "Foo1", "New", "Foo2", "Last"};
+        int i = 0;
+        for (SRT srt : srtInfo) {
+            assertEquals(i + 1, srt.number);
+            assertEquals(texts[i++], srt.text.get(0));
+        }
+        assertEquals(texts.length, i);
+        assertEquals("00:00:01,000", SRTTimeFormat.format(srtInfo.get(1).startTime));
+    }
+    
+    @Test
+    public void testCommitFailure() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:01,000"),
+            SRTTimeFormat.parse("00:00:02,000"), "Foo1"));
+        srtInfo.add(new SRT(2, SRTTimeFormat.parse("00:00:03,000"),
+            SRTTimeFormat.parse("00:00:04,000"), "Foo2"));
+        // the last operation refers to a subtitle that does not exist
+        SRTTransaction tx = SRTEditor.beginTransaction(srtInfo)
+            .removeSubtitle(1)
+            .appendSubtitle("00:00:10,000", "00:00:11,000", Arrays.asList("Foo3"))
+            .removeSubtitle(100);
+        try {
+            tx.commit();
+            fail();
+        } catch (SRTEditorException e) {
+        }
+        
+        assertEquals(0, tx.size());
+        assertEquals(2, srtInfo.size());
+        assertEquals("Foo1", srtInfo.get(1).text.get(0));
+        assertEquals("Foo2", srtInfo.get(2).text.get(0));
+    }
+    
+    @Test
+    public void testCommitOtherFailure() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:01,000"),
+            SRTTimeFormat.parse("00:00:02,000"), "Foo1"));
+        // a failure that is not an SRTEditorException
+        SRTTransaction tx = SRTEditor.beginTransaction(srtInfo)
+            .removeSubtitle(1)
+            .updateSubtitle(null);
+        try {
+            tx.commit();
+            fail();
+        } catch (SRTEditorException e) {
+            assertTrue(e.getCause() instanceof NullPointerException);
+        }
+        
+        assertEquals(1, srtInfo.size());
+        assertEquals("Foo1", srtInfo.get(1).text.get(0));
+    }
+    
+    @Test
+    public void testRollback() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:01,000"),
+            SRTTimeFormat.parse("00:00:02,000"), "Foo Bar Baz"));
+        SRTTransaction tx = SRTEditor.beginTransaction(srtInfo)
+            .removeSubtitle(1)
+            .updateTexts(3);
+        tx.rollback();
+        tx.commit();
+        
+        assertEquals(1, srtInfo.size());
+        assertEquals(Arrays.asList("Foo Bar Baz"), srtInfo.get(1).text);
+    }
+}
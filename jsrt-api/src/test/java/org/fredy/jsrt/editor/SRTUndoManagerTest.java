@@ -0,0 +1,202 @@
+/* 
+ * Copyright 2012 Fredy Wijaya
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.fredy.jsrt.editor;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.fredy.jsrt.api.SRT;
+import org.fredy.jsrt.api.SRTInfo;
+import org.fredy.jsrt.api.SRTTimeFormat;
+import org.junit.Test;
+
+/**
+ * @author fredy
+ */
+public class SRTUndoManagerTest {
+
+    @Test
+    public void testUndoRedo() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:01,000"),
+            SRTTimeFormat.parse("00:00:03,000"), "Foo Bar"));
+        // overlaps subtitle 1
+        srtInfo.add(new SRT(2, SRTTimeFormat.parse("00:00:02,000"),
+            SRTTimeFormat.parse("00:00:02,500"), "Baz Qux"));
+        // two speakers starting at the end of the time window below
+        srtInfo.add(new SRT(3, SRTTimeFormat.parse("00:00:04,000"),
+            SRTTimeFormat.parse("00:00:05,000"), "Speaker1 says hi"));
+        srtInfo.add(new SRT(4, SRTTimeFormat.parse("00:00:04,000"),
+            SRTTimeFormat.parse("00:00:05,000"), "Speaker2 says bye"));
+        SRTUndoManager undoManager = new SRTUndoManager(srtInfo);
+        List<List<String>> states = new ArrayList<>();
+        states.add(toList(undoManager.getSRTInfo()));
+        
+        undoManager.updateTime(2, SRTTimeFormat.Type.SECOND, 3);
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.updateTimes(SRTTimeFormat.Type.MILLISECOND, -250);
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.updateTimes(2, 3, SRTTimeFormat.Type.MINUTE, 1);
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.updateTimes("00:00:00,000", "00:00:04,000", SRTTimeFormat.Type.SECOND, 1);
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.updateTimes(SRTRetimer.linear(2, 0));
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.updateText(1, 3);
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.updateTexts(2, 3, 3);
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.updateTexts(3);
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.appendSubtitle("00:10:00,000", "00:10:01,000", Arrays.asList("Foo5"));
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.prependSubtitle("00:00:00,000", "00:00:00,500", Arrays.asList("First"));
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.insertSubtitle(3, "00:00:05,000", "00:00:06,000", Arrays.asList("New"));
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.insertSubtitle(new SRT(2, 100, 200, "Second"));
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.updateSubtitle(new SRT(1, 0, 100, "Updated"));
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.removeSubtitle(4);
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.removeSubtitles(2, 3);
+        states.add(toList(undoManager.getSRTInfo()));
+        undoManager.removeSubtitles("00:00:00,000", "00:00:00,100");
+        states.add(toList(undoManager.getSRTInfo()));
+        
+        int count = states.size() - 1;
+        assertEquals(count, undoManager.getUndoCount());
+        for (int i = count - 1; i >= 0; i--) {
+            undoManager.undo();
+            assertEquals(states.get(i), toList(undoManager.getSRTInfo()));
+        }
+        assertFalse(undoManager.canUndo());
+        assertEquals(count, undoManager.getRedoCount());
+        for (int i = 1; i <= count; i++) {
+            undoManager.redo();
+            assertEquals(states.get(i), toList(undoManager.getSRTInfo()));
+        }
+        assertFalse(undoManager.canRedo());
+    }
+    
+    @Test
+    public void testUnchangedNotRecorded() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        for (int i = 1; i <= 1000; i++) {
+            // the same text for all subtitles
+            srtInfo.add(new SRT(i, i * 1000, i * 1000 + 500, "Foo Bar"));
+        }
+        SRTUndoManager undoManager = new SRTUndoManager(srtInfo);
+        undoManager.updateTexts(80);
+        assertFalse(undoManager.canUndo());
+        
+        // the renumbered subtitles are new objects with the same content
+        undoManager.prependSubtitle("00:00:00,000", "00:00:00,500", Arrays.asList("First"));
+        List<String> expected = toList(undoManager.getSRTInfo());
+        undoManager.updateTexts(80);
+        undoManager.updateTexts(2, 1001, 80);
+        undoManager.updateTimes(SRTRetimer.linear(1, 0));
+        assertEquals(1, undoManager.getUndoCount());
+        assertEquals(expected, toList(undoManager.getSRTInfo()));
+        
+        undoManager.undo();
+        assertEquals(1000, undoManager.getSRTInfo().size());
+        assertEquals("Foo Bar", undoManager.getSRTInfo().get(1).text.get(0));
+    }
+    
+    @Test
+    public void testNewOperationClearsRedo() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:01,000"),
+            SRTTimeFormat.parse("00:00:02,000"), "Foo1"));
+        srtInfo.add(new SRT(2, SRTTimeFormat.parse("00:00:03,000"),
+            SRTTimeFormat.parse("00:00:04,000"), "Foo2"));
+        srtInfo.add(new SRT(3, SRTTimeFormat.parse("00:00:05,000"),
+            SRTTimeFormat.parse("00:00:06,000"), "Foo3"));
+        SRTUndoManager undoManager = new SRTUndoManager(srtInfo);
+        undoManager.removeSubtitle(1);
+        undoManager.undo();
+        assertTrue(undoManager.canRedo());
+        
+        undoManager.removeSubtitle(2);
+        assertFalse(undoManager.canRedo());
+        assertEquals(2, undoManager.getSRTInfo().size());
+        assertEquals("Foo1", undoManager.getSRTInfo().get(1).text.get(0));
+        assertEquals("Foo3", undoManager.getSRTInfo().get(2).text.get(0));
+    }
+    
+    @Test
+    public void testLimit() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:01,000"),
+            SRTTimeFormat.parse("00:00:02,000"), "Foo"));
+        SRTUndoManager undoManager = new SRTUndoManager(srtInfo, 2);
+        for (int i = 0; i < 3; i++) {
+            undoManager.updateTimes(SRTTimeFormat.Type.SECOND, 1);
+        }
+        assertEquals(2, undoManager.getUndoCount());
+        undoManager.undo();
+        undoManager.undo();
+        assertFalse(undoManager.canUndo());
+        // the first shift can no longer be undone
+        assertEquals("00:00:02,000",
+            SRTTimeFormat.format(undoManager.getSRTInfo().get(1).startTime));
+    }
+    
+    @Test
+    public void testFailures() throws Exception {
+        SRTInfo srtInfo = new SRTInfo();
+        srtInfo.add(new SRT(1, SRTTimeFormat.parse("00:00:01,000"),
+            SRTTimeFormat.parse("00:00:02,000"), "Foo"));
+        SRTUndoManager undoManager = new SRTUndoManager(srtInfo);
+        try {
+            undoManager.undo();
+            fail();
+        } catch (SRTEditorException e) {
+        }
+        try {
+            undoManager.redo();
+            fail();
+        } catch (SRTEditorException e) {
+        }
+        // a failed operation is not recorded
+        try {
+            undoManager.removeSubtitle(100);
+            fail();
+        } catch (SRTEditorException e) {
+        }
+        assertFalse(undoManager.canUndo());
+    }
+    
+    private static List<String> toList(SRTInfo srtInfo) {
+        List<String> list = new ArrayList<>();
+        for (SRT srt : srtInfo) {
+            list.add(srt.number + " " + srt.startTime + " " + srt.endTime + " " + srt.text);
+        }
+        return list;
+    }
+}
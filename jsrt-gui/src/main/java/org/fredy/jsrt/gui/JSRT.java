@@ -54,10 +54,9 @@ import javafx.util.Callback;
 import jfxtras.scene.control.ListSpinner;
 import org.fredy.jsrt.api.SRT;
 import org.fredy.jsrt.api.SRTInfo;
-import org.fredy.jsrt.api.SRTReader;
+import org.fredy.jsrt.api.SRTJournal;
 import org.fredy.jsrt.api.SRTTimeFormat;
 import org.fredy.jsrt.api.SRTTimeFormat.SRTTime;
-import org.fredy.jsrt.api.SRTWriter;
 import org.fredy.jsrt.editor.SRTEditor;
 import org.fredy.jsrt.util.StringUtils;
 import org.fredy.jsrt.util.VersionUtils;
@@ -79,6 +78,7 @@ public class JSRT extends Application {
     private ObservableList<SRTWrapper> srtInfoData;
     private SRTInfo srtInfo;
     private File srtFile;
+    private SRTJournal journal;
     // all the controls
     private Stage primaryStage;
     private Label filePathLabel;
@@ -119,6 +119,22 @@ public class JSRT extends Application {
         primaryStage.show();
     }
     
+    @Override
+    public void stop() throws Exception {
+        closeJournal();
+    }
+    
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.compact();
+            } finally {
+                journal.close();
+                journal = null;
+            }
+        }
+    }
+    
     private void refreshTableView() {
         srtInfoData.clear();
         for (SRT s : srtInfo) {
@@ -216,7 +232,9 @@ public class JSRT extends Application {
                 if (srtFile == null) {
                     return;
                 }
-                srtInfo = SRTReader.read(srtFile);
+                closeJournal();
+                journal = SRTJournal.open(srtFile);
+                srtInfo = journal.getSRTInfo();
                 refreshTableView();
                 filePathLabel.setText("  [" + srtFile.getAbsolutePath() + "]");
                 timeTypeListSpinner.setDisable(false);
@@ -257,9 +275,9 @@ public class JSRT extends Application {
             @Override
             public void handle(ActionEvent evt) {
                 try {
-                    SRTEditor.updateTimes(srtInfo, timeTypeListSpinner.getValue(),
-                        timeValueListSpinner.getValue());
-                    SRTWriter.write(srtFile, srtInfo);
+                    journal.shift(SRTEditor.toMillis(timeTypeListSpinner.getValue(),
+                        timeValueListSpinner.getValue()));
+                    srtInfo = journal.getSRTInfo();
                     refreshTableView();
                 } catch (Exception e) {
                    showError(ResourceBundleKeys.DIALOG_ERROR_TITLE.getValue(rb), e.getMessage());
@@ -344,8 +362,8 @@ public class JSRT extends Application {
                     if (sw == null) {
                         return;
                     }
-                    SRTEditor.removeSubtitle(srtInfo, sw.srt.number);
-                    SRTWriter.write(srtFile, srtInfo);
+                    journal.delete(sw.srt.number);
+                    srtInfo = journal.getSRTInfo();
                     refreshTableView();
                     
                     if (srtInfoData.size() == 0) {
@@ -632,12 +650,12 @@ public class JSRT extends Application {
                         endTimeMilliSecListSpinner.getValue());
 
                     SRT newSRT = new SRT(srt.number,
-                        SRTTimeFormat.fromSRTTime(startSRTTime),
-                        SRTTimeFormat.fromSRTTime(endSRTTime),
+                        SRTTimeFormat.toMillis(startSRTTime),
+                        SRTTimeFormat.toMillis(endSRTTime),
                         textTextArea.getText());
                     execute(newSRT);
 
-                    SRTWriter.write(srtFile, srtInfo);
+                    srtInfo = journal.getSRTInfo();
                     refreshTableView();
                     close();
                 } catch (Exception e) {
@@ -679,7 +697,7 @@ public class JSRT extends Application {
          */
         @Override
         protected void execute(SRT newSRT) {
-            SRTEditor.updateSubtitle(srtInfo, newSRT);
+            journal.add(newSRT);
         }
     }
     
@@ -709,7 +727,7 @@ public class JSRT extends Application {
          */
         @Override
         protected void execute(SRT newSRT) {
-            SRTEditor.insertSubtitle(srtInfo, newSRT);
+            journal.insert(newSRT);
         }
     }
     
@@ -751,8 +769,8 @@ public class JSRT extends Application {
                     return false;
                 }
             } else if (srt.number != other.srt.number ||
-                !srt.startTime.equals(other.srt.startTime) ||
-                !srt.endTime.equals(other.srt.endTime) ||
+                srt.startTime != other.srt.startTime ||
+                srt.endTime != other.srt.endTime ||
                 !srt.text.equals(other.srt.text)) {
                 return false;
             }